@@ -48,4 +48,59 @@ public @interface DataSource {
      * @return 数据源版本
      */
     String version() default "1.0.0";
+    
+    /**
+     * 搜索结果中是否已经包含剧集信息
+     * 
+     * 为true时getEpisodes只解析搜索结果中的播放地址，不会请求上游，
+     * 搜索接口可以按请求直接返回解析好的剧集列表
+     * 
+     * @return 搜索时是否可获得剧集列表
+     */
+    boolean episodesInSearch() default false;
+    
+    /**
+     * HTTP客户端配置名称
+     * 
+     * 内置default、fast、slow三个配置，也可以使用在application.properties中定义的配置。
+     * 基础URL的主机和hosts中的主机使用该配置的连接池、调度器和超时时间
+     * 
+     * @return 配置名称
+     */
+    String httpProfile() default "default";
+    
+    /**
+     * 除基础URL外，数据源还会请求的上游主机
+     * 
+     * 这些主机和基础URL的主机使用相同的限流和HTTP客户端配置，启动时一起预热。
+     * 可以只写主机名（预热时使用基础URL的协议），也可以带协议，例如http://search.example.com
+     * 
+     * @return 主机名列表
+     */
+    String[] hosts() default {};
+    
+    /**
+     * 每个上游主机每秒最多发出的请求数
+     * 
+     * 0表示不限制。超出速率的请求在HTTP层排队等待，而不是被拒绝
+     * 
+     * @return 每秒请求数
+     */
+    double requestsPerSecond() default 0;
+    
+    /**
+     * 每个上游主机允许的突发请求数
+     * 
+     * @return 突发请求数
+     */
+    int burst() default 5;
+    
+    /**
+     * 请求排队等待的最长时间（毫秒）
+     * 
+     * 预计等待时间超过该值的请求直接失败，不会写入失败缓存
+     * 
+     * @return 最长等待时间
+     */
+    long maxWaitMillis() default 5000;
 }
\ No newline at end of file
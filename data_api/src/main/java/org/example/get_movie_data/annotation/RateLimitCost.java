@@ -0,0 +1,25 @@
+package org.example.get_movie_data.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 限流消耗注解
+ * 
+ * 标注在控制器方法上，声明每次调用消耗的客户端令牌数。
+ * 会向多个数据源并发请求的接口（例如搜索）应比只请求单个上游的接口（例如m3u8）消耗更多令牌，
+ * 没有标注的接口不限流。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimitCost {
+    
+    /**
+     * 每次调用消耗的令牌数
+     * 
+     * @return 令牌数
+     */
+    int value();
+}
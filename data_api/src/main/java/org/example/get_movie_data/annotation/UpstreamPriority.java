@@ -0,0 +1,25 @@
+package org.example.get_movie_data.annotation;
+
+import org.example.get_movie_data.util.RequestPriority;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 上游请求优先级注解
+ * 
+ * 标注在控制器方法或类上，处理请求期间发起的上游请求按指定优先级排队
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface UpstreamPriority {
+    
+    /**
+     * 优先级
+     * 
+     * @return 优先级
+     */
+    RequestPriority value();
+}
@@ -0,0 +1,62 @@
+package org.example.get_movie_data.config;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.get_movie_data.service.AdmissionController;
+import org.example.get_movie_data.util.RequestPriority;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * 准入控制拦截器
+ * 
+ * 请求进入控制器前进行准入判断，过载时直接返回503并附带Retry-After。
+ * 需要注册在{@link UpstreamPriorityInterceptor}之后，以便按请求的上游优先级判断。
+ * 异步请求在异步处理结束后才计为完成。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    // 标记请求已经通过准入的请求属性
+    private static final String ADMITTED_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".admitted";
+
+    private final AdmissionController admissionController;
+
+    public AdmissionInterceptor(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步处理结束后的再次分派已经通过准入
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        AdmissionController.Admission admission = admissionController.tryAdmit(RequestPriority.current());
+        if (admission == AdmissionController.Admission.REJECTED) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionController.getRetryAfterSeconds()));
+            return false;
+        }
+        request.setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        admissionController.clearThread();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        admissionController.clearThread();
+        if (request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            request.removeAttribute(ADMITTED_ATTRIBUTE);
+            admissionController.leave();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.get_movie_data.config;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.get_movie_data.annotation.RateLimitCost;
+import org.example.get_movie_data.service.RateLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 按客户端限流的拦截器
+ * 
+ * 客户端标识优先使用API Key请求头，只接受配置的API Key和不限流的API Key，其他请求使用客户端IP。
+ * 来自受信任代理的请求从X-Forwarded-For中由右向左取第一个不是受信任代理的地址，
+ * 客户端自己填写的左侧地址不会被使用。超出配额时返回429并附带Retry-After。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+
+    // 携带API Key的请求头
+    private final String apiKeyHeader;
+
+    // 接受的API Key，其他API Key按IP识别
+    private final Set<String> apiKeys;
+
+    // 受信任的反向代理地址，只有来自这些地址的请求才使用X-Forwarded-For
+    private final Set<String> trustedProxies;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, String apiKeyHeader, Collection<String> apiKeys,
+                                Collection<String> trustedProxies) {
+        this.rateLimiter = rateLimiter;
+        this.apiKeyHeader = apiKeyHeader;
+        this.apiKeys = normalize(apiKeys);
+        this.trustedProxies = normalize(trustedProxies);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步处理结束后的再次分派不重复计数
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        RateLimitCost cost = ((HandlerMethod) handler).getMethodAnnotation(RateLimitCost.class);
+        if (cost == null) {
+            return true;
+        }
+        long retryAfter = rateLimiter.tryAcquire(resolveClientKey(request), cost.value());
+        if (retryAfter > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 使用API Key的客户端标识
+     * 
+     * @param apiKey API Key
+     * @return 客户端标识
+     */
+    public static String apiKeyClient(String apiKey) {
+        return "key:" + apiKey;
+    }
+
+    /**
+     * 确定客户端标识
+     * 
+     * @param request 请求
+     * @return 接受的API Key或客户端IP
+     */
+    private String resolveClientKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        if (apiKey != null && !apiKey.isEmpty()) {
+            String client = apiKeyClient(apiKey);
+            if (apiKeys.contains(apiKey) || rateLimiter.isExempt(client)) {
+                return client;
+            }
+        }
+        return "ip:" + resolveClientAddress(request);
+    }
+
+    /**
+     * 确定客户端IP
+     * 
+     * 直连地址是受信任代理时，由右向左跳过X-Forwarded-For中的受信任代理，取第一个其他地址；
+     * 全部是受信任代理时取最左侧的地址
+     * 
+     * @param request 请求
+     * @return 客户端IP
+     */
+    private String resolveClientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!trustedProxies.contains(address)) {
+            return address;
+        }
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor == null || forwardedFor.isEmpty()) {
+            return address;
+        }
+        int end = forwardedFor.length();
+        while (end > 0) {
+            int comma = forwardedFor.lastIndexOf(',', end - 1);
+            String hop = forwardedFor.substring(comma + 1, end).trim();
+            if (!hop.isEmpty()) {
+                address = hop;
+                if (!trustedProxies.contains(hop)) {
+                    break;
+                }
+            }
+            end = comma;
+        }
+        return address;
+    }
+
+    private static Set<String> normalize(Collection<String> values) {
+        return values.stream().map(String::trim).filter(value -> !value.isEmpty()).collect(Collectors.toUnmodifiableSet());
+    }
+}
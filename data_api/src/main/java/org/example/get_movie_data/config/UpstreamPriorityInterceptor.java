@@ -0,0 +1,57 @@
+package org.example.get_movie_data.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.get_movie_data.annotation.UpstreamPriority;
+import org.example.get_movie_data.util.Deadline;
+import org.example.get_movie_data.util.RequestPriority;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * 上游请求优先级拦截器
+ * 
+ * 根据控制器方法上的{@link UpstreamPriority}注解设置处理线程的上游请求优先级，
+ * 同时设置请求的截止时间，上游请求据此判断是否还有时间重试。请求结束或转为异步处理时清除
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class UpstreamPriorityInterceptor implements AsyncHandlerInterceptor {
+
+    // 请求的截止时间（毫秒）
+    private final long requestDeadlineMillis;
+
+    public UpstreamPriorityInterceptor(long requestDeadlineMillis) {
+        this.requestDeadlineMillis = requestDeadlineMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Deadline.bind(Deadline.after(requestDeadlineMillis));
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            UpstreamPriority annotation = handlerMethod.getMethodAnnotation(UpstreamPriority.class);
+            if (annotation == null) {
+                annotation = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), UpstreamPriority.class);
+            }
+            if (annotation != null) {
+                RequestPriority.bind(annotation.value());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestPriority.unbind();
+        Deadline.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestPriority.unbind();
+        Deadline.unbind();
+    }
+}
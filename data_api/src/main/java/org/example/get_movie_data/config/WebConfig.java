@@ -1,9 +1,14 @@
 package org.example.get_movie_data.config;
 
+import org.example.get_movie_data.service.AdmissionController;
+import org.example.get_movie_data.service.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.cors.CorsConfiguration;
@@ -11,6 +16,8 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 
+import java.util.List;
+
 /**
  * Web配置类
  * 
@@ -22,6 +29,28 @@ import org.springframework.boot.web.servlet.FilterRegistrationBean;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    // 限流时用于识别客户端的API Key请求头
+    @Value("${movie.rate-limit.api-key-header:X-Api-Key}")
+    private String apiKeyHeader;
+
+    // 接受的API Key，逗号分隔，其他API Key按IP识别
+    @Value("${movie.rate-limit.api-keys:}")
+    private List<String> apiKeys;
+
+    // 受信任的反向代理地址，逗号分隔，只有来自这些地址的请求才使用X-Forwarded-For识别客户端IP
+    @Value("${movie.rate-limit.trusted-proxies:}")
+    private List<String> trustedProxies;
+
+    // 请求的截止时间（毫秒），超过后上游请求不再重试
+    @Value("${movie.upstream.request-deadline:30000}")
+    private long requestDeadlineMillis;
+
     /**
      * 配置CORS跨域支持
      * 
@@ -38,6 +67,23 @@ public class WebConfig implements WebMvcConfigurer {
                 .maxAge(3600);
     }
     
+    /**
+     * 注册拦截器
+     * 
+     * @param registry 拦截器注册器
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 按控制器方法上的注解设置上游请求优先级
+        registry.addInterceptor(new UpstreamPriorityInterceptor(requestDeadlineMillis));
+        // 按客户端限流，超出配额的请求不参与准入
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, apiKeyHeader, apiKeys, trustedProxies))
+                .addPathPatterns("/api/movie/**");
+        // 按请求的优先级进行准入控制，过载时拒绝或只返回缓存
+        registry.addInterceptor(new AdmissionInterceptor(admissionController))
+                .addPathPatterns("/api/movie/**");
+    }
+    
     /**
      * 配置全局CORS过滤器
      * 
@@ -0,0 +1,66 @@
+package org.example.get_movie_data.controller;
+
+/**
+ * 批量获取M3U8地址时单个剧集的结果
+ */
+public class M3u8BatchItem {
+
+    /**
+     * 单个剧集的获取状态
+     */
+    public enum Status {
+        /** 获取成功 */
+        OK,
+        /** 数据源没有返回地址 */
+        EMPTY,
+        /** 请求数据源失败 */
+        FAILED,
+        /** 等待超时 */
+        TIMEOUT
+    }
+
+    private String title;
+    private String episodeUrl;
+    private String m3u8Url;
+    private Status status;
+
+    public M3u8BatchItem() {
+    }
+
+    public M3u8BatchItem(String title, String episodeUrl) {
+        this.title = title;
+        this.episodeUrl = episodeUrl;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getEpisodeUrl() {
+        return episodeUrl;
+    }
+
+    public void setEpisodeUrl(String episodeUrl) {
+        this.episodeUrl = episodeUrl;
+    }
+
+    public String getM3u8Url() {
+        return m3u8Url;
+    }
+
+    public void setM3u8Url(String m3u8Url) {
+        this.m3u8Url = m3u8Url;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+}
@@ -1,26 +1,54 @@
 package org.example.get_movie_data.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.example.get_movie_data.model.Movie;
+import org.example.get_movie_data.service.AdmissionController;
+import org.example.get_movie_data.service.AsyncMovieService;
+import org.example.get_movie_data.service.AsyncMovieServiceAdapter;
+import org.example.get_movie_data.service.CacheManager;
 import org.example.get_movie_data.service.MovieService;
 import org.example.get_movie_data.service.MovieServiceManager;
 import org.example.get_movie_data.service.DataSourceConfig;
 import org.example.get_movie_data.service.ConfigManager;
+import org.example.get_movie_data.service.OverloadedException;
+import org.example.get_movie_data.service.ResponseCache;
 import org.example.get_movie_data.annotation.DataSource;
+import org.example.get_movie_data.annotation.RateLimitCost;
+import org.example.get_movie_data.annotation.UpstreamPriority;
+import org.example.get_movie_data.util.RequestPriority;
+import org.example.get_movie_data.util.BoundedLauncher;
+import org.example.get_movie_data.util.CancellationScope;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -41,14 +69,41 @@ public class MovieController {
     
     private static final Logger logger = Logger.getLogger(MovieController.class.getName());
     
-    // 限制最大并发数，避免网络资源紧张
-    private static final int MAX_CONCURRENT_REQUESTS = 3;
-
+    // 批量搜索一次最多的关键词数量
+    private static final int MAX_BATCH_KEYWORDS = 100;
+    
+    // 并发请求上游时最多等待的秒数，超时后返回已完成的部分结果
+    private static final long UPSTREAM_TIMEOUT_SECONDS = 30;
+    
+    // 客户端标识请求头，同一客户端的新搜索会取消之前仍在进行的搜索
+    private static final String CLIENT_ID_HEADER = "X-Client-Id";
+    
     @Autowired
     private MovieServiceManager movieServiceManager;
     
     @Autowired
     private ConfigManager configManager;
+    
+    @Autowired
+    private ResponseCache responseCache;
+    
+    @Autowired
+    private AdmissionController admissionController;
+    
+    // 批量搜索时每个数据源同时进行的搜索数
+    @Value("${movie.search.batch.concurrency:4}")
+    private int searchBatchConcurrency;
+    
+    // 批量获取M3U8地址一次最多的剧集数量
+    @Value("${movie.m3u8.batch.max-episodes:200}")
+    private int m3u8BatchMaxEpisodes;
+    
+    // 批量获取M3U8地址时同时进行的上游请求数，其余剧集排队，避免一次请求占满共享的上游线程池
+    @Value("${movie.m3u8.batch.concurrency:4}")
+    private int m3u8BatchConcurrency;
+    
+    // 来源地址和客户端标识 -> 该客户端正在进行的搜索
+    private final ConcurrentHashMap<String, CancellationScope> activeSearches = new ConcurrentHashMap<>();
 
     /**
      * 处理跨域预检请求
@@ -60,23 +115,195 @@ public class MovieController {
         return ResponseEntity.ok().build();
     }
     
+    /**
+     * 服务过载且没有缓存的响应时返回503
+     * 
+     * @param e 过载异常
+     * @return 带Retry-After的503响应
+     */
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<byte[]> handleOverloaded(OverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
+    
     /**
      * 根据搜索关键词获取影视信息（完整信息，包含剧集）
      * 此接口为对外统一接口，会并发向所有配置的数据源发送HTTP请求并整合结果
      * 
+     * 并发搜索期间不占用Servlet线程，超时的数据源不等待，只返回已完成数据源的结果。
+     * 客户端断开或同一客户端发起新的搜索时，取消仍在进行的上游请求。
+     * 
      * @param request 搜索请求参数
+     * @param clientId 客户端标识，同一来源地址、同一标识的新搜索会取消之前的搜索
+     * @param servletRequest HTTP请求，用于获取来源地址
+     * @param acceptEncoding 客户端支持的压缩方式
      * @return 影视信息列表
      */
     @PostMapping("/search/all")
+    @UpstreamPriority(RequestPriority.SEARCH)
+    @RateLimitCost(5)
     @Operation(summary = "搜索所有数据源的电影", description = "根据关键词搜索所有数据源的电影信息")
-    @ApiResponse(responseCode = "200", description = "成功返回电影列表", 
-                 content = @Content(mediaType = "application/json", 
-                          schema = @Schema(implementation = Movie.class)))
-    public List<Movie> searchMoviesFromAllSources(
+    @ApiResponse(responseCode = "200", description = "成功返回电影列表",
+                 headers = @Header(name = "Content-Encoding", description = "客户端支持gzip且响应较大时为gzip"),
+                 content = @Content(mediaType = "application/json",
+                          array = @ArraySchema(schema = @Schema(implementation = Movie.class))))
+    public DeferredResult<ResponseEntity<byte[]>> searchMoviesFromAllSources(
             @Parameter(description = "搜索请求参数", required = true) 
-            @RequestBody MovieRequest request) {
+            @RequestBody MovieRequest request,
+            @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId,
+            HttpServletRequest servletRequest,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         String keyword = request.getKeyword();
-        logger.info("MovieController.searchMoviesFromAllSources called with keyword: " + keyword);
+        boolean includeEpisodes = Boolean.TRUE.equals(request.getIncludeEpisodes());
+        logger.info("MovieController.searchMoviesFromAllSources called with keyword: " + keyword + ", includeEpisodes: " + includeEpisodes);
+        String responseKey = searchResponseKey(keyword, includeEpisodes);
+        ResponseCache.CachedResponse cached = responseCache.get(responseKey);
+        if (cached != null) {
+            logger.info("Response cache hit for search: " + keyword);
+            return immediate(toResponseEntity(cached, acceptEncoding));
+        }
+        // 准入检查在登记搜索之前进行，被拒绝的请求不会取消之前的搜索，也不会留下取消范围
+        admissionController.requireUpstream();
+        
+        String searchKey = searchKey(servletRequest, clientId);
+        CancellationScope scope = beginSearch(searchKey);
+        return toDeferredResult(resolveSearchResponse(keyword, includeEpisodes, responseKey, scope)
+                .thenApply(response -> toResponseEntity(response, acceptEncoding)), scope, searchKey);
+    }
+    
+    /**
+     * 根据搜索关键词获取影视信息（可缓存的GET接口）
+     * 
+     * 响应带有强ETag和与缓存有效期一致的Cache-Control，If-None-Match匹配时返回304
+     * 
+     * @param keyword 搜索关键词
+     * @param includeEpisodes 是否附带剧集列表
+     * @param clientId 客户端标识，同一来源地址、同一标识的新搜索会取消之前的搜索
+     * @param servletRequest HTTP请求，用于获取来源地址
+     * @param ifNoneMatch 客户端缓存的ETag
+     * @param acceptEncoding 客户端支持的压缩方式
+     * @return 影视信息列表
+     */
+    @GetMapping("/search/all")
+    @UpstreamPriority(RequestPriority.SEARCH)
+    @RateLimitCost(5)
+    @Operation(summary = "搜索所有数据源的电影（GET）", description = "根据关键词搜索所有数据源的电影信息，支持ETag条件请求")
+    @ApiResponse(responseCode = "200", description = "成功返回电影列表",
+                 headers = @Header(name = "Content-Encoding", description = "客户端支持gzip且响应较大时为gzip"),
+                 content = @Content(mediaType = "application/json",
+                          array = @ArraySchema(schema = @Schema(implementation = Movie.class))))
+    @ApiResponse(responseCode = "304", description = "内容未变化",
+                 headers = @Header(name = "ETag", description = "与If-None-Match匹配的ETag"))
+    public DeferredResult<ResponseEntity<byte[]>> searchMoviesFromAllSourcesGet(
+            @Parameter(description = "搜索关键词", required = true) 
+            @RequestParam("keyword") String keyword,
+            @Parameter(description = "是否为搜索时已包含剧集信息的数据源直接返回剧集列表") 
+            @RequestParam(value = "includeEpisodes", defaultValue = "false") boolean includeEpisodes,
+            @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId,
+            HttpServletRequest servletRequest,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        logger.info("MovieController.searchMoviesFromAllSourcesGet called with keyword: " + keyword + ", includeEpisodes: " + includeEpisodes);
+        String responseKey = searchResponseKey(keyword, includeEpisodes);
+        ResponseCache.CachedResponse cached = responseCache.get(responseKey);
+        if (cached != null) {
+            logger.info("Response cache hit for search: " + keyword);
+            return immediate(toConditionalResponseEntity(cached, ifNoneMatch, acceptEncoding));
+        }
+        admissionController.requireUpstream();
+        
+        String searchKey = searchKey(servletRequest, clientId);
+        CancellationScope scope = beginSearch(searchKey);
+        return toDeferredResult(resolveSearchResponse(keyword, includeEpisodes, responseKey, scope)
+                .thenApply(response -> toConditionalResponseEntity(response, ifNoneMatch, acceptEncoding)), scope, searchKey);
+    }
+    
+    /**
+     * 搜索结果的序列化响应缓存键
+     * 
+     * @param keyword 搜索关键词
+     * @param includeEpisodes 是否附带剧集列表
+     * @return 响应缓存键
+     */
+    private static String searchResponseKey(String keyword, boolean includeEpisodes) {
+        return includeEpisodes
+                ? ResponseCache.key("search+episodes", keyword)
+                : ResponseCache.key("search", keyword);
+    }
+    
+    /**
+     * 并发搜索所有数据源并生成序列化响应，调用方已确认响应没有缓存并通过了准入检查
+     * 
+     * @param keyword 搜索关键词
+     * @param includeEpisodes 是否为搜索时已包含剧集信息的数据源附带剧集列表
+     * @param responseKey 响应缓存键
+     * @param scope 本次请求的取消范围
+     * @return 序列化后的响应的Future
+     */
+    private CompletableFuture<ResponseCache.CachedResponse> resolveSearchResponse(String keyword, boolean includeEpisodes,
+                                                                                String responseKey, CancellationScope scope) {
+        // 确定要搜索的数据源
+        Map<String, MovieService> sources = resolveSearchSources();
+        if (sources.isEmpty()) {
+            logger.warning("No url mappings configured and no registered services found");
+        }
+        
+        // 响应依赖每个数据源的搜索结果缓存，超时的数据源没有缓存，部分结果不会被缓存
+        List<String> dependencies = new ArrayList<>();
+        for (String baseUrl : sources.keySet()) {
+            dependencies.add(CacheManager.searchKey(baseUrl, keyword));
+        }
+        
+        return searchFromSources(sources, keyword, scope).thenApplyAsync(allMovies -> {
+            List<Movie> movies = includeEpisodes ? attachEpisodes(allMovies) : allMovies;
+            return putResponse(responseKey, movies, dependencies);
+        }, movieServiceManager.getUpstreamExecutor());
+    }
+    
+    /**
+     * 为搜索时已包含剧集信息的数据源附带剧集列表
+     * 
+     * 搜索结果被缓存共享，因此返回附带剧集列表的副本，不修改原对象。
+     * 其他数据源的电影保持原样，客户端仍通过剧集接口获取剧集。
+     * 
+     * @param movies 搜索结果
+     * @return 附带剧集列表的搜索结果
+     */
+    private List<Movie> attachEpisodes(List<Movie> movies) {
+        List<Movie> result = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            String baseUrl = movie.getBaseUrl();
+            if (movie.getEpisodeList() != null || !movieServiceManager.hasEpisodesInSearch(baseUrl)) {
+                result.add(movie);
+                continue;
+            }
+            
+            try {
+                // 只解析播放地址，不请求上游；经过缓存装饰器，之后的剧集请求可直接命中缓存
+                MovieService service = movieServiceManager.getMovieServiceByBaseUrl(baseUrl);
+                List<Movie.Episode> episodes = service.getEpisodes(baseUrl, movie.getPlayUrl());
+                Movie copy = new Movie(movie);
+                copy.setEpisodeList(episodes);
+                result.add(copy);
+            } catch (Exception e) {
+                logger.warning("Error parsing episodes for movie: " + movie.getName() + " from " + baseUrl + ", error: " + e.getMessage());
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 确定搜索时要使用的数据源
+     * 
+     * 配置了URL映射时使用URL映射，否则使用所有已注册的数据源服务
+     * 
+     * @return 基础URL到数据源服务的映射，保持配置顺序
+     */
+    private Map<String, MovieService> resolveSearchSources() {
+        Map<String, MovieService> sources = new LinkedHashMap<>();
         
         // 获取所有URL映射配置
         DataSourceConfig config = configManager.getConfig();
@@ -88,8 +315,6 @@ public class MovieController {
             
             // 获取所有已注册的服务ID
             List<String> registeredServices = movieServiceManager.getAllRegisteredServiceIds();
-            List<MovieService> servicesToTry = new ArrayList<>();
-            List<String> baseUrlsToTry = new ArrayList<>();
             
             for (String serviceId : registeredServices) {
                 if (!"default".equals(serviceId)) { // 排除默认服务
@@ -98,235 +323,504 @@ public class MovieController {
                         // 根据服务类型确定基础URL
                         String baseUrl = getBaseUrlForService(service, serviceId);
                         if (baseUrl != null) {
-                            servicesToTry.add(service);
-                            baseUrlsToTry.add(baseUrl);
+                            sources.put(baseUrl, service);
                         }
                     }
                 }
             }
             
-            if (!servicesToTry.isEmpty()) {
-                logger.info("Using " + servicesToTry.size() + " dynamically discovered services");
-                
-                // 直接使用获取到的服务进行搜索，绕过URL映射
-                List<Movie> allMovies = new ArrayList<>();
-                ExecutorService executor = Executors.newFixedThreadPool(Math.min(servicesToTry.size(), MAX_CONCURRENT_REQUESTS));
-                
-                try {
-                    List<CompletableFuture<List<Movie>>> futures = new ArrayList<>();
-                    
-                    for (int i = 0; i < servicesToTry.size(); i++) {
-                        MovieService service = servicesToTry.get(i);
-                        String baseUrl = baseUrlsToTry.get(i);
-                        
-                        CompletableFuture<List<Movie>> future = CompletableFuture.supplyAsync(() -> {
-                            try {
-                                logger.info("Searching movies from service: " + service.getClass().getSimpleName() + " with baseUrl: " + baseUrl);
-                                List<Movie> movies = service.searchMovies(baseUrl, keyword);
-                                
-                                // 为每个电影对象设置baseUrl字段
-                                if (movies != null) {
-                                    for (Movie movie : movies) {
-                                        movie.setBaseUrl(baseUrl);
-                                    }
-                                    return movies;
-                                }
-                                return new ArrayList<>();
-                            } catch (Exception e) {
-                                logger.warning("Error searching movies from service " + service.getClass().getSimpleName() + ", error: " + e.getMessage());
-                                return new ArrayList<>();
+            logger.info("Using " + sources.size() + " dynamically discovered services");
+            return sources;
+        }
+        
+        for (DataSourceConfig.UrlMapping urlMapping : urlMappings) {
+            // 跳过通配符匹配
+            if ("*".equals(urlMapping.getBaseUrl())) {
+                continue;
+            }
+            sources.put(urlMapping.getBaseUrl(), movieServiceManager.getMovieServiceByBaseUrl(urlMapping.getBaseUrl()));
+        }
+        return sources;
+    }
+    
+    /**
+     * 并发向多个数据源搜索并整合结果
+     * 
+     * @param sources 基础URL到数据源服务的映射
+     * @param keyword 搜索关键词
+     * @param scope 本次请求的取消范围
+     * @return 所有数据源的电影列表的Future，超时或取消时只包含已完成数据源的结果
+     */
+    private CompletableFuture<List<Movie>> searchFromSources(Map<String, MovieService> sources, String keyword, CancellationScope scope) {
+        if (sources.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        
+        // 没有实现异步接口的数据源在共享的上游请求线程池中执行
+        ExecutorService executor = movieServiceManager.getUpstreamExecutor();
+        
+        // 存储所有CompletableFuture结果
+        List<CompletableFuture<List<Movie>>> futures = new ArrayList<>();
+        
+        // 向每个数据源发起异步搜索
+        for (Map.Entry<String, MovieService> source : sources.entrySet()) {
+            String baseUrl = source.getKey();
+            AsyncMovieService service = AsyncMovieServiceAdapter.of(source.getValue(), executor);
+            
+            logger.info("Searching movies from service: " + source.getValue().getClass().getSimpleName() + " with baseUrl: " + baseUrl);
+            CompletableFuture<List<Movie>> upstream = scope.track(service.searchMoviesAsync(baseUrl, keyword));
+            CompletableFuture<List<Movie>> future = upstream
+                    .thenApply(movies -> prepareMovies(baseUrl, movies))
+                    .exceptionally(e -> {
+                        logger.warning("Error searching movies from URL " + baseUrl + ": " + e.getMessage());
+                        return new ArrayList<>();
+                    });
+            futures.add(CancellationScope.propagateCancellation(future, upstream));
+        }
+        
+        // 所有任务完成或超时后收集结果，不阻塞调用线程
+        return allWithin(futures).thenApply(completed -> {
+            List<Movie> allMovies = new ArrayList<>();
+            for (CompletableFuture<List<Movie>> future : futures) {
+                if (future.isDone() && !future.isCompletedExceptionally()) {
+                    allMovies.addAll(future.join());
+                }
+            }
+            if (!completed) {
+                logger.warning("Search timed out for keyword: " + keyword + ", returning partial results");
+            }
+            logSearchSummary(allMovies);
+            return allMovies;
+        });
+    }
+    
+    /**
+     * 等待一组任务完成，最多等待{@link #UPSTREAM_TIMEOUT_SECONDS}秒
+     * 
+     * 超时时取消未完成的任务，已正常完成任务的结果仍可读取
+     * 
+     * @param futures 任务列表
+     * @return 全部完成时为true，超时时为false
+     */
+    private static CompletableFuture<Boolean> allWithin(Collection<? extends CompletableFuture<?>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .handle((v, e) -> true)
+                .completeOnTimeout(false, UPSTREAM_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .thenApply(completed -> {
+                    if (!completed) {
+                        int cancelled = 0;
+                        for (CompletableFuture<?> future : futures) {
+                            if (future.cancel(true)) {
+                                cancelled++;
                             }
-                        }, executor);
-                        futures.add(future);
-                    }
-                    
-                    // 等待所有任务完成并收集结果
-                    CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-                        futures.toArray(new CompletableFuture[0])
-                    );
-                    
-                    try {
-                        // 等待所有任务完成，最多等待30秒
-                        allFutures.get(30, TimeUnit.SECONDS);
-                        
-                        // 收集所有结果
-                        for (CompletableFuture<List<Movie>> future : futures) {
-                            allMovies.addAll(future.getNow(new ArrayList<>()));
                         }
-                    } catch (TimeoutException e) {
-                        logger.warning("Timeout waiting for all futures to complete: " + e.getMessage());
-                        // 取消所有未完成的任务
-                        futures.forEach(f -> f.cancel(true));
-                    } catch (InterruptedException e) {
-                        logger.warning("Interrupted while waiting for futures to complete: " + e.getMessage());
-                        Thread.currentThread().interrupt();
-                        // 取消所有未完成的任务
-                        futures.forEach(f -> f.cancel(true));
-                    } catch (Exception e) {
-                        logger.warning("Error while executing futures: " + e.getMessage());
-                        // 取消所有未完成的任务
-                        futures.forEach(f -> f.cancel(true));
+                        countCancelled(cancelled, "timeout");
                     }
-                    
-                    // 集中输出从各数据源获取到的数据信息
-                    logger.info("Total movies found from all sources: " + allMovies.size());
-                    if (logger.isLoggable(java.util.logging.Level.INFO)) {
-                        StringBuilder logBuilder = new StringBuilder();
-                        logBuilder.append("Detailed data source information:\n");
-                        
-                        // 按数据源分组统计
-                        Map<String, Long> sourceCountMap = allMovies.stream()
-                            .collect(Collectors.groupingBy(Movie::getBaseUrl, Collectors.counting()));
-                        
-                        for (Map.Entry<String, Long> entry : sourceCountMap.entrySet()) {
-                            logBuilder.append("  DataSource: ").append(entry.getKey())
-                                .append(", Movie Count: ").append(entry.getValue()).append("\n");
-                        }
-                        
-                        // 输出部分电影信息
-                        logBuilder.append("Sample movies:\n");
-                        int count = 0;
-                        for (Movie movie : allMovies) {
-                            if (count++ >= 5) break; // 只显示前5个
-                            logBuilder.append("  Name: ").append(movie.getName())
-                                .append(", BaseUrl: ").append(movie.getBaseUrl()).append("\n");
-                        }
-                        
-                        if (allMovies.size() > 5) {
-                            logBuilder.append("  ... and ").append(allMovies.size() - 5).append(" more movies\n");
-                        }
-                        
-                        logger.info(logBuilder.toString());
-                    }
-                    return allMovies;
-                } finally {
-                    // 关闭线程池
-                    executor.shutdown();
-                    try {
-                        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                            executor.shutdownNow();
-                        }
-                    } catch (InterruptedException e) {
-                        executor.shutdownNow();
-                        Thread.currentThread().interrupt();
-                    }
-                }
+                    return completed;
+                });
+    }
+    
+    /**
+     * 计算搜索的取消键
+     * 
+     * 客户端标识由请求头提供，任何人都可以填写别人的标识，因此取消键包含请求的来源地址，
+     * 客户端只能取消来自同一地址的搜索
+     * 
+     * @param servletRequest HTTP请求
+     * @param clientId 客户端标识，可以为空
+     * @return 取消键，没有客户端标识时返回null
+     */
+    private String searchKey(HttpServletRequest servletRequest, String clientId) {
+        if (clientId == null || clientId.isEmpty()) {
+            return null;
+        }
+        return servletRequest.getRemoteAddr() + " " + clientId;
+    }
+    
+    /**
+     * 开始一次搜索，同一客户端之前仍在进行的搜索被取消
+     * 
+     * @param searchKey 取消键，可以为空
+     * @return 本次搜索的取消范围
+     */
+    private CancellationScope beginSearch(String searchKey) {
+        CancellationScope scope = new CancellationScope();
+        if (searchKey != null) {
+            CancellationScope previous = activeSearches.put(searchKey, scope);
+            if (previous != null) {
+                countCancelled(previous.cancel(), "superseded");
+            }
+        }
+        return scope;
+    }
+    
+    /**
+     * 将异步结果转换为DeferredResult
+     * 
+     * 请求超时或客户端断开时取消范围内仍在进行的上游请求
+     * 
+     * @param future 响应的Future
+     * @param scope 本次请求的取消范围
+     * @param searchKey 取消键，可以为空
+     * @return DeferredResult
+     */
+    private DeferredResult<ResponseEntity<byte[]>> toDeferredResult(CompletableFuture<ResponseEntity<byte[]>> future,
+                                                                    CancellationScope scope, String searchKey) {
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>();
+        result.onTimeout(() -> countCancelled(scope.cancel(), "request-timeout"));
+        result.onError(e -> countCancelled(scope.cancel(), "disconnect"));
+        future.whenComplete((response, error) -> {
+            if (searchKey != null) {
+                activeSearches.remove(searchKey, scope);
+            }
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
             } else {
-                logger.warning("No url mappings configured and no registered services found");
-                return new ArrayList<>();
+                result.setResult(response);
             }
+        });
+        return result;
+    }
+    
+    /**
+     * 直接返回的DeferredResult，用于参数错误等不需要请求上游的情况
+     * 
+     * @param response 响应
+     * @return 已设置结果的DeferredResult
+     */
+    private static DeferredResult<ResponseEntity<byte[]>> immediate(ResponseEntity<byte[]> response) {
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+    
+    /**
+     * 记录被取消的上游请求数量
+     * 
+     * @param cancelled 被取消的请求数量
+     * @param reason 取消原因
+     */
+    private static void countCancelled(int cancelled, String reason) {
+        if (cancelled > 0) {
+            logger.info("Cancelled " + cancelled + " upstream requests, reason: " + reason);
+            Metrics.counter("movie.upstream.cancelled", "reason", reason).increment(cancelled);
+        }
+    }
+    
+    /**
+     * 序列化并缓存响应，在异步任务中使用
+     * 
+     * @param key 响应键
+     * @param body 响应对象
+     * @param dependencies 响应依赖的缓存键
+     * @return 序列化后的响应
+     */
+    private ResponseCache.CachedResponse putResponse(String key, Object body, List<String> dependencies) {
+        try {
+            return responseCache.put(key, body, dependencies);
+        } catch (JsonProcessingException e) {
+            throw new CompletionException(e);
+        }
+    }
+    
+    /**
+     * 为数据源返回的电影设置baseUrl字段，并分配电影ID
+     * 
+     * @param baseUrl 基础URL
+     * @param movies 数据源返回的电影列表
+     * @return 电影列表，数据源返回null时返回空列表
+     */
+    private List<Movie> prepareMovies(String baseUrl, List<Movie> movies) {
+        if (movies == null) {
+            return new ArrayList<>();
+        }
+        for (Movie movie : movies) {
+            movie.setBaseUrl(baseUrl);
+        }
+        movieServiceManager.getMovieIndex().register(baseUrl, movies);
+        return movies;
+    }
+    
+    /**
+     * 批量搜索多个关键词
+     * 
+     * 关键词去重后，已缓存的结果直接在请求线程中读取，每个数据源未缓存的关键词逐个异步搜索，
+     * 同时进行的搜索数有限
+     * 
+     * @param request 包含keywords的搜索请求参数
+     * @param clientId 客户端标识，同一来源地址、同一标识的新搜索会取消之前的搜索
+     * @param servletRequest HTTP请求，用于获取来源地址
+     * @param acceptEncoding 客户端支持的压缩方式
+     * @return 关键词到电影列表的映射，顺序与去重后的关键词顺序一致
+     */
+    @PostMapping("/search/batch")
+    @UpstreamPriority(RequestPriority.BACKGROUND)
+    @RateLimitCost(20)
+    @Operation(summary = "批量搜索多个关键词", description = "一次请求搜索多个关键词，返回每个关键词在所有数据源中的电影列表")
+    @ApiResponse(responseCode = "200", description = "成功返回关键词到电影列表的映射",
+                 headers = @Header(name = "Content-Encoding", description = "客户端支持gzip且响应较大时为gzip"),
+                 content = @Content(mediaType = "application/json",
+                          schema = @Schema(type = "object", description = "关键词 -> 电影列表",
+                                           additionalPropertiesSchema = Movie[].class)))
+    @ApiResponse(responseCode = "400", description = "没有关键词或关键词过多")
+    public DeferredResult<ResponseEntity<byte[]>> searchMoviesBatch(
+            @Parameter(description = "批量搜索请求参数", required = true) 
+            @RequestBody MovieRequest request,
+            @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId,
+            HttpServletRequest servletRequest,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // 去除空白和重复的关键词
+        Set<String> keywords = new LinkedHashSet<>();
+        if (request.getKeywords() != null) {
+            for (String keyword : request.getKeywords()) {
+                if (keyword != null && !keyword.trim().isEmpty()) {
+                    keywords.add(keyword.trim());
+                }
+            }
+        }
+        logger.info("MovieController.searchMoviesBatch called with " + keywords.size() + " keywords");
+        if (keywords.isEmpty() || keywords.size() > MAX_BATCH_KEYWORDS) {
+            return immediate(ResponseEntity.badRequest().build());
         }
         
-        // 创建线程池，限制并发线程数
-        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+        String responseKey = ResponseCache.key("search-batch", String.join("\n", keywords));
+        ResponseCache.CachedResponse cached = responseCache.get(responseKey);
+        if (cached != null) {
+            logger.info("Response cache hit for batch search: " + keywords.size() + " keywords");
+            return immediate(toResponseEntity(cached, acceptEncoding));
+        }
+        admissionController.requireUpstream();
         
-        try {
-            // 存储所有CompletableFuture结果
-            List<CompletableFuture<List<Movie>>> futures = new ArrayList<>();
-            
-            // 向每个URL映射提交任务
-            for (int i = 0; i < urlMappings.size(); i++) {
-                DataSourceConfig.UrlMapping urlMapping = urlMappings.get(i);
-                // 跳过通配符匹配
-                if ("*".equals(urlMapping.getBaseUrl())) {
-                    continue;
+        Map<String, MovieService> sources = resolveSearchSources();
+        String searchKey = searchKey(servletRequest, clientId);
+        CancellationScope scope = beginSearch(searchKey);
+        return toDeferredResult(searchBatchFromSources(sources, new ArrayList<>(keywords), scope).thenApplyAsync(resultsBySource -> {
+            // 按关键词整合各数据源的结果
+            Map<String, List<Movie>> results = new LinkedHashMap<>();
+            List<String> dependencies = new ArrayList<>();
+            for (String keyword : keywords) {
+                List<Movie> movies = new ArrayList<>();
+                List<String> keywordDependencies = new ArrayList<>();
+                for (String baseUrl : sources.keySet()) {
+                    List<Movie> sourceMovies = resultsBySource.get(baseUrl).get(keyword);
+                    if (sourceMovies != null) {
+                        movies.addAll(sourceMovies);
+                    }
+                    keywordDependencies.add(CacheManager.searchKey(baseUrl, keyword));
                 }
+                results.put(keyword, movies);
+                dependencies.addAll(keywordDependencies);
                 
-                CompletableFuture<List<Movie>> future = CompletableFuture.supplyAsync(() -> {
-                    try {
-                        logger.info("Searching movies from URL: " + urlMapping.getBaseUrl());
-                        // 直接调用内部方法
-                        MovieService service = movieServiceManager.getMovieServiceByBaseUrl(urlMapping.getBaseUrl());
-                        List<Movie> movies = service.searchMovies(urlMapping.getBaseUrl(), keyword);
-                        
-                        // 为每个电影对象设置baseUrl字段
-                        if (movies != null) {
-                            for (Movie movie : movies) {
-                                movie.setBaseUrl(urlMapping.getBaseUrl());
-                            }
-                            return movies;
-                        }
-                        return new ArrayList<>();
-                    } catch (Exception e) {
-                        logger.warning("Error searching movies from URL " + urlMapping.getBaseUrl() + ": " + e.getMessage());
-                        return new ArrayList<>();
-                    }
-                }, executor);
-                futures.add(future);
+                // 每个关键词的结果同时作为单关键词搜索的响应缓存
+                putResponse(ResponseCache.key("search", keyword), movies, keywordDependencies);
             }
             
-            // 等待所有任务完成并收集结果
-            List<Movie> allMovies = new ArrayList<>();
-            CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-                futures.toArray(new CompletableFuture[0])
-            );
+            return toResponseEntity(putResponse(responseKey, results, dependencies), acceptEncoding);
+        }, movieServiceManager.getUpstreamExecutor()), scope, searchKey);
+    }
+    
+    /**
+     * 向多个数据源批量搜索关键词
+     * 
+     * 每个未缓存的关键词单独发起一次异步搜索，每个数据源同时进行的搜索不超过movie.search.batch.concurrency，
+     * 每个关键词的结果单独完成或超时，超时前完成的关键词都会返回
+     * 
+     * @param sources 基础URL到数据源服务的映射
+     * @param keywords 去重后的关键词列表
+     * @param scope 本次请求的取消范围
+     * @return 基础URL到该数据源关键词结果的映射的Future，失败或超时的关键词不在结果中
+     */
+    private CompletableFuture<Map<String, Map<String, List<Movie>>>> searchBatchFromSources(Map<String, MovieService> sources, List<String> keywords,
+                                                                                         CancellationScope scope) {
+        CacheManager cacheManager = movieServiceManager.getCacheManager();
+        ExecutorService executor = movieServiceManager.getUpstreamExecutor();
+        
+        Map<String, Map<String, List<Movie>>> resultsBySource = new LinkedHashMap<>();
+        Map<String, Map<String, CompletableFuture<List<Movie>>>> futures = new LinkedHashMap<>();
+        List<CompletableFuture<List<Movie>>> allFutures = new ArrayList<>();
+        for (Map.Entry<String, MovieService> source : sources.entrySet()) {
+            String baseUrl = source.getKey();
+            AsyncMovieService service = AsyncMovieServiceAdapter.of(source.getValue(), executor);
+            Map<String, List<Movie>> sourceResults = new ConcurrentHashMap<>();
+            resultsBySource.put(baseUrl, sourceResults);
             
-            try {
-                // 等待所有任务完成，最多等待30秒
-                allFutures.get(30, TimeUnit.SECONDS);
-                
-                // 收集所有结果
-                for (CompletableFuture<List<Movie>> future : futures) {
-                    allMovies.addAll(future.getNow(new ArrayList<>()));
+            // 已缓存的关键词直接读取
+            List<String> misses = new ArrayList<>();
+            List<Supplier<CompletableFuture<List<Movie>>>> tasks = new ArrayList<>();
+            for (String keyword : keywords) {
+                List<Movie> cachedMovies = cacheManager.getCachedSearchResults(baseUrl, keyword);
+                if (cachedMovies != null) {
+                    sourceResults.put(keyword, prepareMovies(baseUrl, cachedMovies));
+                } else if (cacheManager.getNegativeSearchResult(baseUrl, keyword) == null) {
+                    misses.add(keyword);
+                    tasks.add(() -> service.searchMoviesAsync(baseUrl, keyword));
                 }
-            } catch (TimeoutException e) {
-                logger.warning("Timeout waiting for all futures to complete: " + e.getMessage());
-                // 取消所有未完成的任务
-                futures.forEach(f -> f.cancel(true));
-            } catch (InterruptedException e) {
-                logger.warning("Interrupted while waiting for futures to complete: " + e.getMessage());
-                Thread.currentThread().interrupt();
-                // 取消所有未完成的任务
-                futures.forEach(f -> f.cancel(true));
-            } catch (Exception e) {
-                logger.warning("Error while executing futures: " + e.getMessage());
-                // 取消所有未完成的任务
-                futures.forEach(f -> f.cancel(true));
             }
             
-            // 集中输出从各数据源获取到的数据信息
-            logger.info("Total movies found from all sources: " + allMovies.size());
-            if (logger.isLoggable(java.util.logging.Level.INFO)) {
-                StringBuilder logBuilder = new StringBuilder();
-                logBuilder.append("Detailed data source information:\n");
-                
-                // 按数据源分组统计
-                Map<String, Long> sourceCountMap = allMovies.stream()
-                    .collect(Collectors.groupingBy(Movie::getBaseUrl, Collectors.counting()));
-                
-                for (Map.Entry<String, Long> entry : sourceCountMap.entrySet()) {
-                    logBuilder.append("  DataSource: ").append(entry.getKey())
-                        .append(", Movie Count: ").append(entry.getValue()).append("\n");
+            // 未缓存的关键词逐个异步搜索，并发数有限
+            if (!misses.isEmpty()) {
+                logger.info("Batch searching " + misses.size() + " keywords from " + baseUrl);
+                List<CompletableFuture<List<Movie>>> launched = BoundedLauncher.launch(tasks, searchBatchConcurrency);
+                Map<String, CompletableFuture<List<Movie>>> sourceFutures = new LinkedHashMap<>();
+                for (int i = 0; i < misses.size(); i++) {
+                    CompletableFuture<List<Movie>> future = scope.track(launched.get(i));
+                    sourceFutures.put(misses.get(i), future);
+                    allFutures.add(future);
                 }
-                
-                // 输出部分电影信息
-                logBuilder.append("Sample movies:\n");
-                int count = 0;
-                for (Movie movie : allMovies) {
-                    if (count++ >= 5) break; // 只显示前5个
-                    logBuilder.append("  Name: ").append(movie.getName())
-                        .append(", BaseUrl: ").append(movie.getBaseUrl()).append("\n");
+                futures.put(baseUrl, sourceFutures);
+            }
+        }
+        
+        if (allFutures.isEmpty()) {
+            return CompletableFuture.completedFuture(resultsBySource);
+        }
+        
+        // 所有搜索完成或超时后收集结果，单个关键词的失败或超时不影响其他关键词
+        return allWithin(allFutures).thenApply(completed -> {
+            for (Map.Entry<String, Map<String, CompletableFuture<List<Movie>>>> sourceEntry : futures.entrySet()) {
+                String baseUrl = sourceEntry.getKey();
+                int missing = 0;
+                for (Map.Entry<String, CompletableFuture<List<Movie>>> entry : sourceEntry.getValue().entrySet()) {
+                    CompletableFuture<List<Movie>> future = entry.getValue();
+                    if (!future.isDone() || future.isCompletedExceptionally()) {
+                        missing++;
+                        continue;
+                    }
+                    List<Movie> movies = future.join();
+                    resultsBySource.get(baseUrl).put(entry.getKey(), prepareMovies(baseUrl, movies != null ? movies : new ArrayList<>()));
                 }
-                
-                if (allMovies.size() > 5) {
-                    logBuilder.append("  ... and ").append(allMovies.size() - 5).append(" more movies\n");
+                if (missing > 0) {
+                    logger.warning("Batch search did not complete for " + missing + " keywords on " + baseUrl);
                 }
-                
-                logger.info(logBuilder.toString());
             }
-            return allMovies;
-        } finally {
-            // 关闭线程池
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
+            return resultsBySource;
+        });
+    }
+    
+    /**
+     * 集中输出从各数据源获取到的数据信息
+     * 
+     * @param allMovies 所有数据源的电影列表
+     */
+    private void logSearchSummary(List<Movie> allMovies) {
+        logger.info("Total movies found from all sources: " + allMovies.size());
+        if (logger.isLoggable(java.util.logging.Level.INFO)) {
+            StringBuilder logBuilder = new StringBuilder();
+            logBuilder.append("Detailed data source information:\n");
+            
+            // 按数据源分组统计
+            Map<String, Long> sourceCountMap = allMovies.stream()
+                .collect(Collectors.groupingBy(Movie::getBaseUrl, Collectors.counting()));
+            
+            for (Map.Entry<String, Long> entry : sourceCountMap.entrySet()) {
+                logBuilder.append("  DataSource: ").append(entry.getKey())
+                    .append(", Movie Count: ").append(entry.getValue()).append("\n");
+            }
+            
+            // 输出部分电影信息
+            logBuilder.append("Sample movies:\n");
+            int count = 0;
+            for (Movie movie : allMovies) {
+                if (count++ >= 5) break; // 只显示前5个
+                logBuilder.append("  Name: ").append(movie.getName())
+                    .append(", BaseUrl: ").append(movie.getBaseUrl()).append("\n");
+            }
+            
+            if (allMovies.size() > 5) {
+                logBuilder.append("  ... and ").append(allMovies.size() - 5).append(" more movies\n");
             }
+            
+            logger.info(logBuilder.toString());
+        }
+    }
+    
+    /**
+     * 将序列化后的响应转换为ResponseEntity
+     * 
+     * 客户端支持gzip且存在预先压缩的字节时直接返回压缩字节，Tomcat检测到Content-Encoding后不会再次压缩
+     * 
+     * @param response 序列化后的响应
+     * @param acceptEncoding 客户端支持的压缩方式
+     * @return ResponseEntity
+     */
+    private ResponseEntity<byte[]> toResponseEntity(ResponseCache.CachedResponse response, String acceptEncoding) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (response.getGzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.getGzip());
         }
+        return builder.body(response.getJson());
+    }
+    
+    /**
+     * 将序列化后的响应转换为支持条件请求的ResponseEntity
+     * 
+     * ETag由响应内容计算，gzip表示使用不同的ETag；Cache-Control的max-age为响应在缓存中的剩余有效时间，
+     * 未被缓存的响应使用no-cache，客户端每次都需要重新验证
+     * 
+     * @param response 序列化后的响应
+     * @param ifNoneMatch 客户端缓存的ETag
+     * @param acceptEncoding 客户端支持的压缩方式
+     * @return ResponseEntity，ETag匹配时为304
+     */
+    private ResponseEntity<byte[]> toConditionalResponseEntity(ResponseCache.CachedResponse response, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = response.getGzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = "\"" + response.getEtag() + (gzip ? "-gzip" : "") + "\"";
+        
+        long maxAge = response.getRemainingSeconds();
+        CacheControl cacheControl = maxAge > 0
+                ? CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic()
+                : CacheControl.noCache();
+        
+        if (etagMatches(ifNoneMatch, response.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.getGzip());
+        }
+        return builder.body(response.getJson());
+    }
+    
+    /**
+     * 判断If-None-Match是否匹配当前内容
+     * 
+     * 支持多个ETag、弱ETag前缀和通配符，同一内容的gzip和非gzip表示都视为匹配
+     * 
+     * @param ifNoneMatch If-None-Match请求头
+     * @param etag 当前内容的ETag值（不含引号）
+     * @return 是否匹配
+     */
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value)) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.equals(etag) || value.equals(etag + "-gzip")) {
+                return true;
+            }
+        }
+        return false;
     }
 
 
@@ -334,36 +828,138 @@ public class MovieController {
      * 根据播放地址获取影视的全部集数和标题以及播放地址
      * 
      * @param request 播放请求参数
+     * @param acceptEncoding 客户端支持的压缩方式
      * @return 影视剧集列表
+     * @throws JsonProcessingException 序列化失败
      */
     @PostMapping("/episodes")
+    @UpstreamPriority(RequestPriority.INTERACTIVE)
+    @RateLimitCost(2)
     @Operation(summary = "获取影视剧集列表", description = "根据播放地址获取影视的全部集数和标题以及播放地址")
-    @ApiResponse(responseCode = "200", description = "成功返回剧集列表", 
-                 content = @Content(mediaType = "application/json", 
-                          schema = @Schema(implementation = Movie.Episode.class)))
-    public List<Movie.Episode> getEpisodes(
+    @ApiResponse(responseCode = "200", description = "成功返回剧集列表",
+                 headers = @Header(name = "Content-Encoding", description = "客户端支持gzip且响应较大时为gzip"),
+                 content = @Content(mediaType = "application/json",
+                          array = @ArraySchema(schema = @Schema(implementation = Movie.Episode.class))))
+    public ResponseEntity<byte[]> getEpisodes(
             @Parameter(description = "播放请求参数", required = true) 
-            @RequestBody MovieRequest request) {
+            @RequestBody MovieRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws JsonProcessingException {
         String baseUrl = request.getBaseUrl();
         String playUrl = request.getPlayUrl();
         String datasource = request.getDatasource();
-        logger.info("MovieController.getEpisodes called with baseUrl: " + baseUrl + ", playUrl: " + playUrl + ", datasource: " + datasource);
+        String movieId = request.getMovieId();
+        logger.info("MovieController.getEpisodes called with baseUrl: " + baseUrl + ", playUrl: " + playUrl + ", datasource: " + datasource + ", movieId: " + movieId);
         
+        ResponseCache.CachedResponse response = resolveEpisodesResponse(movieId, baseUrl, playUrl);
+        if (response == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return toResponseEntity(response, acceptEncoding);
+    }
+    
+    /**
+     * 根据播放地址获取影视剧集列表（可缓存的GET接口）
+     * 
+     * @param baseUrl 基础URL
+     * @param playUrl 播放地址
+     * @param ifNoneMatch 客户端缓存的ETag
+     * @param acceptEncoding 客户端支持的压缩方式
+     * @return 影视剧集列表
+     * @throws JsonProcessingException 序列化失败
+     */
+    @GetMapping("/episodes")
+    @UpstreamPriority(RequestPriority.INTERACTIVE)
+    @RateLimitCost(2)
+    @Operation(summary = "获取影视剧集列表（GET）", description = "根据播放地址获取影视的全部集数和标题以及播放地址，支持ETag条件请求")
+    @ApiResponse(responseCode = "200", description = "成功返回剧集列表",
+                 headers = @Header(name = "Content-Encoding", description = "客户端支持gzip且响应较大时为gzip"),
+                 content = @Content(mediaType = "application/json",
+                          array = @ArraySchema(schema = @Schema(implementation = Movie.Episode.class))))
+    @ApiResponse(responseCode = "304", description = "内容未变化",
+                 headers = @Header(name = "ETag", description = "与If-None-Match匹配的ETag"))
+    public ResponseEntity<byte[]> getEpisodesGet(
+            @Parameter(description = "基础URL，使用movieId时可省略") 
+            @RequestParam(value = "baseUrl", required = false) String baseUrl,
+            @Parameter(description = "播放地址，使用movieId时可省略") 
+            @RequestParam(value = "playUrl", required = false) String playUrl,
+            @Parameter(description = "搜索结果中的电影ID") 
+            @RequestParam(value = "movieId", required = false) String movieId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws JsonProcessingException {
+        logger.info("MovieController.getEpisodesGet called with baseUrl: " + baseUrl + ", playUrl: " + playUrl + ", movieId: " + movieId);
+        
+        ResponseCache.CachedResponse response = resolveEpisodesResponse(movieId, baseUrl, playUrl);
+        if (response == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return toConditionalResponseEntity(response, ifNoneMatch, acceptEncoding);
+    }
+    
+    /**
+     * 获取剧集列表的序列化响应，提供电影ID时从索引中取出基础URL和播放地址
+     * 
+     * @param movieId 电影ID，可以为空
+     * @param baseUrl 基础URL
+     * @param playUrl 播放地址
+     * @return 序列化后的响应，电影ID不在索引中时返回null
+     * @throws JsonProcessingException 序列化失败
+     */
+    private ResponseCache.CachedResponse resolveEpisodesResponse(String movieId, String baseUrl, String playUrl) throws JsonProcessingException {
+        if (movieId != null && !movieId.isEmpty()) {
+            Movie movie = movieServiceManager.getMovieIndex().find(movieId);
+            if (movie == null) {
+                logger.warning("Movie not found in index: " + movieId);
+                return null;
+            }
+            return resolveEpisodesResponse(movie.getBaseUrl(), movie.getPlayUrl());
+        }
+        return resolveEpisodesResponse(baseUrl, playUrl);
+    }
+    
+    /**
+     * 获取剧集列表的序列化响应
+     * 
+     * @param baseUrl 基础URL
+     * @param playUrl 播放地址
+     * @return 序列化后的响应
+     * @throws JsonProcessingException 序列化失败
+     */
+    private ResponseCache.CachedResponse resolveEpisodesResponse(String baseUrl, String playUrl) throws JsonProcessingException {
+        // 优先使用已序列化的响应
+        String responseKey = ResponseCache.key("episodes", baseUrl, playUrl);
+        ResponseCache.CachedResponse cached = responseCache.get(responseKey);
+        if (cached != null) {
+            logger.info("Response cache hit for episodes: " + playUrl);
+            return cached;
+        }
+        
+        List<Movie.Episode> episodes = new ArrayList<>();
         try {
             MovieService service = movieServiceManager.getMovieServiceByBaseUrl(baseUrl);
             if (service == null) {
                 logger.warning("No service found for baseUrl: " + baseUrl);
-                return new ArrayList<>();
+            } else {
+                List<Movie.Episode> result = service.getEpisodes(baseUrl, playUrl);
+                if (result != null) {
+                    episodes = result;
+                }
             }
-            return service.getEpisodes(baseUrl, playUrl);
         } catch (Exception e) {
             logger.warning("Error getting episodes for baseUrl: " + baseUrl + ", playUrl: " + playUrl + ", error: " + e.getMessage());
-            return new ArrayList<>();
         }
+        
+        List<String> dependencies = Collections.singletonList(CacheManager.episodesKey(baseUrl, playUrl));
+        return responseCache.put(responseKey, episodes, dependencies);
     }
     
     // 辅助方法：根据服务实例获取基础URL
     private String getBaseUrlForService(MovieService service, String serviceId) {
+        // 注册的服务被缓存装饰器包装，优先使用注册时从@DataSource注解记录的基础URL
+        String registeredBaseUrl = movieServiceManager.getBaseUrlByDatasourceId(serviceId);
+        if (registeredBaseUrl != null) {
+            return registeredBaseUrl;
+        }
+        
         // 使用反射获取服务类上的@DataSource注解
         Class<?> serviceClass = service.getClass();
         DataSource dataSourceAnnotation = serviceClass.getAnnotation(DataSource.class);
@@ -383,40 +979,324 @@ public class MovieController {
      * 获取具体播放地址的m3u8
      * 
      * @param request M3U8请求参数
+     * @param acceptEncoding 客户端支持的压缩方式
      * @return 包含m3u8地址的响应
+     * @throws JsonProcessingException 序列化失败
      */
     @PostMapping("/m3u8")
+    @UpstreamPriority(RequestPriority.INTERACTIVE)
+    @RateLimitCost(1)
     @Operation(summary = "获取M3U8播放地址", description = "获取具体播放地址的m3u8")
-    @ApiResponse(responseCode = "200", description = "成功返回M3U8地址", 
-                 content = @Content(mediaType = "application/json", 
+    @ApiResponse(responseCode = "200", description = "成功返回M3U8地址",
+                 headers = @Header(name = "Content-Encoding", description = "客户端支持gzip且响应较大时为gzip"),
+                 content = @Content(mediaType = "application/json",
                           schema = @Schema(implementation = MovieResponse.class)))
-    public MovieResponse getM3u8Url(
+    public ResponseEntity<byte[]> getM3u8Url(
             @Parameter(description = "M3U8请求参数", required = true) 
-            @RequestBody MovieRequest request) {
+            @RequestBody MovieRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws JsonProcessingException {
         String baseUrl = request.getBaseUrl();
         String episodeUrl = request.getEpisodeUrl();
         String datasource = request.getDatasource();
-        logger.info("MovieController.getM3u8Url called with baseUrl: " + baseUrl + ", episodeUrl: " + episodeUrl + ", datasource: " + datasource);
+        String movieId = request.getMovieId();
+        Integer episodeIndex = request.getEpisodeIndex();
+        logger.info("MovieController.getM3u8Url called with baseUrl: " + baseUrl + ", episodeUrl: " + episodeUrl + ", datasource: " + datasource
+                + ", movieId: " + movieId + ", episodeIndex: " + episodeIndex);
         
+        ResponseCache.CachedResponse response = resolveM3u8Response(movieId, episodeIndex, baseUrl, episodeUrl);
+        if (response == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return toResponseEntity(response, acceptEncoding);
+    }
+    
+    /**
+     * 获取具体播放地址的m3u8（可缓存的GET接口）
+     * 
+     * @param baseUrl 基础URL
+     * @param episodeUrl 剧集播放地址
+     * @param ifNoneMatch 客户端缓存的ETag
+     * @param acceptEncoding 客户端支持的压缩方式
+     * @return 包含m3u8地址的响应
+     * @throws JsonProcessingException 序列化失败
+     */
+    @GetMapping("/m3u8")
+    @UpstreamPriority(RequestPriority.INTERACTIVE)
+    @RateLimitCost(1)
+    @Operation(summary = "获取M3U8播放地址（GET）", description = "获取具体播放地址的m3u8，支持ETag条件请求")
+    @ApiResponse(responseCode = "200", description = "成功返回M3U8地址",
+                 headers = @Header(name = "Content-Encoding", description = "客户端支持gzip且响应较大时为gzip"),
+                 content = @Content(mediaType = "application/json",
+                          schema = @Schema(implementation = MovieResponse.class)))
+    @ApiResponse(responseCode = "304", description = "内容未变化",
+                 headers = @Header(name = "ETag", description = "与If-None-Match匹配的ETag"))
+    public ResponseEntity<byte[]> getM3u8UrlGet(
+            @Parameter(description = "基础URL，使用movieId时可省略") 
+            @RequestParam(value = "baseUrl", required = false) String baseUrl,
+            @Parameter(description = "剧集播放地址，使用movieId时可省略") 
+            @RequestParam(value = "episodeUrl", required = false) String episodeUrl,
+            @Parameter(description = "搜索结果中的电影ID") 
+            @RequestParam(value = "movieId", required = false) String movieId,
+            @Parameter(description = "剧集序号，从0开始，与movieId一起使用") 
+            @RequestParam(value = "episodeIndex", required = false) Integer episodeIndex,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws JsonProcessingException {
+        logger.info("MovieController.getM3u8UrlGet called with baseUrl: " + baseUrl + ", episodeUrl: " + episodeUrl
+                + ", movieId: " + movieId + ", episodeIndex: " + episodeIndex);
+        
+        ResponseCache.CachedResponse response = resolveM3u8Response(movieId, episodeIndex, baseUrl, episodeUrl);
+        if (response == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return toConditionalResponseEntity(response, ifNoneMatch, acceptEncoding);
+    }
+    
+    /**
+     * 批量获取M3U8播放地址
+     * 
+     * 剧集可以通过电影ID、播放地址或剧集地址列表指定，未缓存的剧集并发获取，
+     * 每个剧集单独返回获取状态，部分失败不影响其他剧集
+     * 
+     * @param request 包含movieId、baseUrl和playUrl或baseUrl和episodeUrls的请求参数
+     * @param acceptEncoding 客户端支持的压缩方式
+     * @return 每个剧集的M3U8地址和获取状态，顺序与剧集顺序一致
+     */
+    @PostMapping("/m3u8/batch")
+    @UpstreamPriority(RequestPriority.BACKGROUND)
+    @RateLimitCost(10)
+    @Operation(summary = "批量获取M3U8播放地址", description = "并发获取整季剧集的M3U8播放地址，每个剧集单独返回获取状态")
+    @ApiResponse(responseCode = "200", description = "成功返回每个剧集的获取结果",
+                 headers = @Header(name = "Content-Encoding", description = "客户端支持gzip且响应较大时为gzip"),
+                 content = @Content(mediaType = "application/json",
+                          array = @ArraySchema(schema = @Schema(implementation = M3u8BatchItem.class))))
+    @ApiResponse(responseCode = "400", description = "没有指定剧集")
+    @ApiResponse(responseCode = "404", description = "电影ID不在索引中")
+    public DeferredResult<ResponseEntity<byte[]>> getM3u8UrlBatch(
+            @Parameter(description = "批量请求参数", required = true) 
+            @RequestBody MovieRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        String baseUrl = request.getBaseUrl();
+        String playUrl = request.getPlayUrl();
+        String movieId = request.getMovieId();
+        List<String> episodeUrls = request.getEpisodeUrls();
+        logger.info("MovieController.getM3u8UrlBatch called with baseUrl: " + baseUrl + ", movieId: " + movieId
+                + ", episodeUrls: " + (episodeUrls == null ? 0 : episodeUrls.size()));
+        
+        List<Movie.Episode> episodes;
+        if (movieId != null && !movieId.isEmpty()) {
+            Movie movie = movieServiceManager.getMovieIndex().find(movieId);
+            if (movie == null) {
+                logger.warning("Movie not found in index: " + movieId);
+                return immediate(ResponseEntity.notFound().build());
+            }
+            baseUrl = movie.getBaseUrl();
+            episodes = movie.getEpisodeList() != null ? movie.getEpisodeList() : loadEpisodes(baseUrl, movie.getPlayUrl());
+        } else if (episodeUrls != null && !episodeUrls.isEmpty()) {
+            episodes = new ArrayList<>(episodeUrls.size());
+            for (String episodeUrl : episodeUrls) {
+                Movie.Episode episode = new Movie.Episode();
+                episode.setEpisodeUrl(episodeUrl);
+                episodes.add(episode);
+            }
+        } else if (playUrl != null && !playUrl.isEmpty()) {
+            episodes = loadEpisodes(baseUrl, playUrl);
+        } else {
+            return immediate(ResponseEntity.badRequest().build());
+        }
+        
+        if (baseUrl == null || baseUrl.isEmpty()) {
+            return immediate(ResponseEntity.badRequest().build());
+        }
+        if (episodes != null && episodes.size() > m3u8BatchMaxEpisodes) {
+            logger.warning("M3u8 batch rejected: " + episodes.size() + " episodes exceeds limit " + m3u8BatchMaxEpisodes);
+            return immediate(ResponseEntity.badRequest().build());
+        }
+        CancellationScope scope = new CancellationScope();
+        return toDeferredResult(resolveM3u8BatchResponse(baseUrl, episodes != null ? episodes : new ArrayList<>(), scope)
+                .thenApply(response -> toResponseEntity(response, acceptEncoding)), scope, null);
+    }
+    
+    /**
+     * 获取批量M3U8地址的序列化响应
+     * 
+     * 已缓存的剧集直接在请求线程中读取，只有未缓存的剧集通过缓存装饰器异步获取，
+     * 同时进行的请求不超过movie.m3u8.batch.concurrency，结果和失败同样写入缓存和负缓存
+     * 
+     * @param baseUrl 基础URL
+     * @param episodes 剧集列表
+     * @param scope 本次请求的取消范围
+     * @return 序列化后的响应的Future
+     */
+    private CompletableFuture<ResponseCache.CachedResponse> resolveM3u8BatchResponse(String baseUrl, List<Movie.Episode> episodes, CancellationScope scope) {
+        // 响应键包含所有剧集的标题和地址
+        StringBuilder episodesKey = new StringBuilder();
+        for (Movie.Episode episode : episodes) {
+            episodesKey.append(episode.getTitle()).append('\t').append(episode.getEpisodeUrl()).append('\n');
+        }
+        String responseKey = ResponseCache.key("m3u8-batch", baseUrl, episodesKey.toString());
+        ResponseCache.CachedResponse cached = responseCache.get(responseKey);
+        if (cached != null) {
+            logger.info("Response cache hit for m3u8 batch: " + episodes.size() + " episodes on " + baseUrl);
+            return CompletableFuture.completedFuture(cached);
+        }
+        admissionController.requireUpstream();
+        
+        CacheManager cacheManager = movieServiceManager.getCacheManager();
+        AsyncMovieService service = movieServiceManager.getAsyncMovieServiceByBaseUrl(baseUrl);
+        
+        List<M3u8BatchItem> items = new ArrayList<>(episodes.size());
+        List<String> dependencies = new ArrayList<>(episodes.size());
+        List<M3u8BatchItem> missItems = new ArrayList<>();
+        List<Supplier<CompletableFuture<String>>> missTasks = new ArrayList<>();
+        for (Movie.Episode episode : episodes) {
+            String episodeUrl = episode.getEpisodeUrl();
+            M3u8BatchItem item = new M3u8BatchItem(episode.getTitle(), episodeUrl);
+            items.add(item);
+            dependencies.add(CacheManager.m3u8Key(baseUrl, episodeUrl));
+            
+            String cachedUrl = cacheManager.getCachedM3u8Url(baseUrl, episodeUrl);
+            if (cachedUrl != null && !cachedUrl.isEmpty()) {
+                item.setM3u8Url(cachedUrl);
+                item.setStatus(M3u8BatchItem.Status.OK);
+            } else {
+                missItems.add(item);
+                missTasks.add(() -> service.getM3u8UrlAsync(baseUrl, episodeUrl));
+            }
+        }
+        
+        if (missItems.isEmpty()) {
+            return CompletableFuture.completedFuture(putResponse(responseKey, items, dependencies));
+        }
+        
+        // 有限并发地发起请求，所有任务完成或超时后逐个标记状态，超时（包括还没有发起）的剧集单独标记
+        Map<M3u8BatchItem, CompletableFuture<String>> misses = new LinkedHashMap<>();
+        List<CompletableFuture<String>> launched = BoundedLauncher.launch(missTasks, m3u8BatchConcurrency);
+        for (int i = 0; i < missItems.size(); i++) {
+            misses.put(missItems.get(i), scope.track(launched.get(i)));
+        }
+        logger.info("Resolving " + misses.size() + " of " + episodes.size() + " m3u8 urls from " + baseUrl);
+        return allWithin(misses.values()).thenApplyAsync(completed -> {
+            if (!completed) {
+                logger.warning("Timeout waiting for m3u8 batch on " + baseUrl);
+            }
+            for (Map.Entry<M3u8BatchItem, CompletableFuture<String>> miss : misses.entrySet()) {
+                M3u8BatchItem item = miss.getKey();
+                CompletableFuture<String> future = miss.getValue();
+                if (future.isCancelled()) {
+                    item.setStatus(M3u8BatchItem.Status.TIMEOUT);
+                } else if (future.isCompletedExceptionally()) {
+                    item.setStatus(M3u8BatchItem.Status.FAILED);
+                } else {
+                    String m3u8Url = future.join();
+                    item.setM3u8Url(m3u8Url);
+                    item.setStatus(m3u8Url == null || m3u8Url.isEmpty() ? M3u8BatchItem.Status.EMPTY : M3u8BatchItem.Status.OK);
+                }
+            }
+            return putResponse(responseKey, items, dependencies);
+        }, movieServiceManager.getUpstreamExecutor());
+    }
+    
+    /**
+     * 获取M3U8地址的序列化响应，提供电影ID时根据剧集序号从剧集列表中取出剧集地址
+     * 
+     * @param movieId 电影ID，可以为空
+     * @param episodeIndex 剧集序号，从0开始
+     * @param baseUrl 基础URL
+     * @param episodeUrl 剧集播放地址
+     * @return 序列化后的响应，电影ID不在索引中或剧集序号无效时返回null
+     * @throws JsonProcessingException 序列化失败
+     */
+    private ResponseCache.CachedResponse resolveM3u8Response(String movieId, Integer episodeIndex, String baseUrl, String episodeUrl) throws JsonProcessingException {
+        if (movieId == null || movieId.isEmpty()) {
+            return resolveM3u8Response(baseUrl, episodeUrl);
+        }
+        
+        Movie movie = movieServiceManager.getMovieIndex().find(movieId);
+        if (movie == null) {
+            logger.warning("Movie not found in index: " + movieId);
+            return null;
+        }
+        
+        String indexedEpisodeUrl = findEpisodeUrl(movie, episodeIndex);
+        if (indexedEpisodeUrl == null) {
+            logger.warning("Episode " + episodeIndex + " not found for movie: " + movieId);
+            return null;
+        }
+        return resolveM3u8Response(movie.getBaseUrl(), indexedEpisodeUrl);
+    }
+    
+    /**
+     * 根据剧集序号查找剧集地址
+     * 
+     * @param movie 电影
+     * @param episodeIndex 剧集序号，从0开始
+     * @return 剧集地址，序号无效或获取剧集失败时返回null
+     */
+    private String findEpisodeUrl(Movie movie, Integer episodeIndex) {
+        if (episodeIndex == null || episodeIndex < 0) {
+            return null;
+        }
+        
+        List<Movie.Episode> episodes = movie.getEpisodeList();
+        if (episodes == null) {
+            episodes = loadEpisodes(movie.getBaseUrl(), movie.getPlayUrl());
+        }
+        
+        if (episodes == null || episodeIndex >= episodes.size()) {
+            return null;
+        }
+        return episodes.get(episodeIndex).getEpisodeUrl();
+    }
+    
+    /**
+     * 通过数据源服务获取剧集列表
+     * 
+     * @param baseUrl 基础URL
+     * @param playUrl 播放地址
+     * @return 剧集列表，获取失败时返回null
+     */
+    private List<Movie.Episode> loadEpisodes(String baseUrl, String playUrl) {
+        try {
+            MovieService service = movieServiceManager.getMovieServiceByBaseUrl(baseUrl);
+            return service.getEpisodes(baseUrl, playUrl);
+        } catch (Exception e) {
+            logger.warning("Error getting episodes for baseUrl: " + baseUrl + ", playUrl: " + playUrl + ", error: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 获取M3U8地址的序列化响应
+     * 
+     * @param baseUrl 基础URL
+     * @param episodeUrl 剧集播放地址
+     * @return 序列化后的响应
+     * @throws JsonProcessingException 序列化失败
+     */
+    private ResponseCache.CachedResponse resolveM3u8Response(String baseUrl, String episodeUrl) throws JsonProcessingException {
+        // 优先使用已序列化的响应
+        String responseKey = ResponseCache.key("m3u8", baseUrl, episodeUrl);
+        ResponseCache.CachedResponse cached = responseCache.get(responseKey);
+        if (cached != null) {
+            logger.info("Response cache hit for m3u8: " + episodeUrl);
+            return cached;
+        }
+        
+        MovieResponse response = new MovieResponse();
+        response.setMovie("");
         try {
             MovieService service = movieServiceManager.getMovieServiceByBaseUrl(baseUrl);
             if (service == null) {
                 logger.warning("No service found for baseUrl: " + baseUrl);
-                MovieResponse response = new MovieResponse();
-                response.setMovie("");
-                return response;
+            } else {
+                // 直接返回子项目处理后的结果
+                response.setMovie(service.getM3u8Url(baseUrl, episodeUrl));
             }
-            // 直接返回子项目处理后的结果
-            String m3u8Url = service.getM3u8Url(baseUrl, episodeUrl);
-            
-            MovieResponse response = new MovieResponse();
-            response.setMovie(m3u8Url);
-            return response;
         } catch (Exception e) {
             logger.warning("Error getting m3u8 for baseUrl: " + baseUrl + ", episodeUrl: " + episodeUrl + ", error: " + e.getMessage());
-            MovieResponse response = new MovieResponse();
-            response.setMovie("");
-            return response;
         }
+        
+        List<String> dependencies = Collections.singletonList(CacheManager.m3u8Key(baseUrl, episodeUrl));
+        return responseCache.put(responseKey, response, dependencies);
     }
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package org.example.get_movie_data.controller;
 
+import java.util.List;
+
 public class MovieRequest {
     private String keyword;
     private String baseUrl;
     private String playUrl;
     private String episodeUrl;
     private String datasource;
+    private String movieId;
+    private Integer episodeIndex;
+    private Boolean includeEpisodes;
+    private List<String> episodeUrls;
+    private List<String> keywords;
 
     // Getters and setters
     public String getKeyword() {
@@ -47,4 +54,44 @@ public class MovieRequest {
     public void setDatasource(String datasource) {
         this.datasource = datasource;
     }
-}
\ No newline at end of file
+
+    public String getMovieId() {
+        return movieId;
+    }
+
+    public void setMovieId(String movieId) {
+        this.movieId = movieId;
+    }
+
+    public Integer getEpisodeIndex() {
+        return episodeIndex;
+    }
+
+    public void setEpisodeIndex(Integer episodeIndex) {
+        this.episodeIndex = episodeIndex;
+    }
+
+    public Boolean getIncludeEpisodes() {
+        return includeEpisodes;
+    }
+
+    public void setIncludeEpisodes(Boolean includeEpisodes) {
+        this.includeEpisodes = includeEpisodes;
+    }
+
+    public List<String> getEpisodeUrls() {
+        return episodeUrls;
+    }
+
+    public void setEpisodeUrls(List<String> episodeUrls) {
+        this.episodeUrls = episodeUrls;
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public void setKeywords(List<String> keywords) {
+        this.keywords = keywords;
+    }
+}
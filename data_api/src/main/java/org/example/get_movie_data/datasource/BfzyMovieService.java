@@ -1,28 +1,31 @@
 package org.example.get_movie_data.datasource;
 
 import org.example.get_movie_data.annotation.DataSource;
+import org.example.get_movie_data.service.AsyncMovieService;
+import org.example.get_movie_data.service.DataSourceException;
 import org.example.get_movie_data.service.MovieService;
 import org.example.get_movie_data.model.Movie;
 import org.example.get_movie_data.util.HttpClientUtil;
 import org.example.get_movie_data.util.HtmlParserUtil;
+import org.example.get_movie_data.util.TextUtil;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 import org.jsoup.nodes.Element;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import org.example.get_movie_data.model.Movie;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * bfzy.tv电影服务实现类
@@ -38,94 +41,168 @@ import java.util.regex.Pattern;
     name = "暴风影音数据源",
     description = "从暴风影音网站获取电影数据",
     baseUrl = "https://bfzy.tv",
-    version = "1.0.0"
+    version = "1.0.0",
+    episodesInSearch = true,
+    httpProfile = "fast",
+    hosts = {"http://search.bfzyapi.com"},
+    requestsPerSecond = 5,
+    burst = 10
 )
-public class BfzyMovieService implements MovieService {
+public class BfzyMovieService implements MovieService, AsyncMovieService {
     
     // 线程池大小控制变量
     private static final int THREAD_POOL_SIZE = 10;
     
     /**
-     * 处理Unicode转义字符
+     * 根据关键词搜索电影
      * 
-     * @param input 包含Unicode转义字符的字符串
-     * @return 解码后的字符串
+     * @param baseUrl 基础URL
+     * @param keyword 搜索关键词
+     * @return 电影列表
      */
-    private String unescapeUnicode(String input) {
-        if (input == null || input.isEmpty()) {
-            return input;
-        }
-        
-        // 使用正则表达式处理Unicode转义序列
-        Pattern pattern = Pattern.compile("\\\\u([0-9a-fA-F]{4})");
-        Matcher matcher = pattern.matcher(input);
-        StringBuffer result = new StringBuffer();
-        
-        while (matcher.find()) {
-            String unicodeHex = matcher.group(1);
-            int unicodeValue = Integer.parseInt(unicodeHex, 16);
-            char unicodeChar = (char) unicodeValue;
-            matcher.appendReplacement(result, Character.toString(unicodeChar));
-        }
-        matcher.appendTail(result);
-        
-        return result.toString();
+    @Override
+    public List<Movie> searchMovies(String baseUrl, String keyword) {
+        //发送请求,边读边解析json；响应没有变化时从缓存的响应体解析
+        return HttpClientUtil.getStreamed(buildSearchUrl(keyword), reader -> parseSearchResponse(reader, keyword));
     }
     
     /**
-     * 根据关键词搜索电影
+     * 根据关键词异步搜索电影，等待响应期间不占用调用线程
      * 
      * @param baseUrl 基础URL
      * @param keyword 搜索关键词
-     * @return 电影列表
+     * @return 电影列表的Future
      */
     @Override
-    public List<Movie> searchMovies(String baseUrl, String keyword) {
+    public CompletableFuture<List<Movie>> searchMoviesAsync(String baseUrl, String keyword) {
+        return HttpClientUtil.getStreamedAsync(buildSearchUrl(keyword), reader -> parseSearchResponse(reader, keyword));
+    }
+    
+    @Override
+    public CompletableFuture<List<Movie.Episode>> getEpisodesAsync(String baseUrl, String playUrl) {
+        // 剧集信息已包含在播放地址中，直接解析
+        try {
+            return CompletableFuture.completedFuture(getEpisodes(baseUrl, playUrl));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    @Override
+    public CompletableFuture<String> getM3u8UrlAsync(String baseUrl, String episodeUrl) {
+        return CompletableFuture.completedFuture(getM3u8Url(baseUrl, episodeUrl));
+    }
+    
+    /**
+     * 构建搜索接口地址
+     * 
+     * @param keyword 搜索关键词
+     * @return 搜索接口地址
+     */
+    private String buildSearchUrl(String keyword) {
         //http://search.bfzyapi.com/json-api/?dname=baofeng&key={keyword}&count=20
-        String url = "http://search.bfzyapi.com/" + "json-api/?dname=baofeng&key=" + keyword + "&count=20";
-        //发送请求,获取json
-        String json = HttpClientUtil.sendGetRequest(url);
+        return "http://search.bfzyapi.com/" + "json-api/?dname=baofeng&key=" + keyword + "&count=20";
+    }
+    
+    /**
+     * 解析搜索接口返回的JSON
+     * 
+     * 使用流式读取，只把posts中需要的字段绑定到Movie，不构建完整的JSON树；读完posts后不再读取后面的内容
+     * 
+     * @param reader 搜索接口响应
+     * @param keyword 搜索关键词
+     * @return 电影列表
+     */
+    private List<Movie> parseSearchResponse(Reader reader, String keyword) {
+        JsonReader json = new JsonReader(reader);
+        json.setLenient(true);
         
-        // 如果返回空内容则返回空列表
-        if (json == null || json.isEmpty()) {
-            return new ArrayList<>();
+        // HttpClientUtil在请求失败时以空内容调用解析函数，正常的接口响应至少包含posts字段
+        try {
+            json.peek();
+        } catch (EOFException e) {
+            throw new DataSourceException("Empty response from bfzy search api, keyword: " + keyword);
+        } catch (IOException e) {
+            throw new DataSourceException("Invalid response from bfzy search api, keyword: " + keyword, e);
         }
-
-        // 解析JSON并只提取posts字段中的数据
-        JsonObject jsonObject = JsonParser.parseString(json).getAsJsonObject();
-        JsonArray postsArray = jsonObject.getAsJsonArray("posts");
         
         // 创建电影列表
         List<Movie> movies = new ArrayList<>();
-
-        //遍历
-        for (JsonElement postElement : postsArray) {
-            //电影名称就是vod_name字段
-            String name = postElement.getAsJsonObject().get("vod_name").getAsString();
-            //海报信息是vod_pic字段
-            String poster = postElement.getAsJsonObject().get("vod_pic").getAsString();
-            //播放地址是vod_play_url字段
-            String playUrl = postElement.getAsJsonObject().get("vod_play_url").getAsString();
-            //简介是vod_content字段
-            String description = postElement.getAsJsonObject().get("vod_content").getAsString();
-
-            // 处理Unicode转义字符
-            name = unescapeUnicode(name);
-            description = unescapeUnicode(description);
-            
-            // 创建Movie对象并设置属性
-            Movie movie = new Movie();
-            movie.setName(name);
-            movie.setPoster(poster);
-            movie.setPlayUrl(playUrl);
-            movie.setDescription(description);
-            
-            // 添加到列表
-            movies.add(movie);
+        
+        try {
+            // 只提取posts字段中的数据，没有posts字段表示没有搜索结果
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("posts".equals(json.nextName()) && json.peek() == JsonToken.BEGIN_ARRAY) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        movies.add(readMovie(json));
+                    }
+                    json.endArray();
+                    break;
+                }
+                json.skipValue();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new DataSourceException("Invalid response from bfzy search api, keyword: " + keyword, e);
         }
 
         return movies;
     }
+    
+    /**
+     * 读取posts中的一条记录
+     * 
+     * @param json 位于记录开头的JSON读取器
+     * @return 电影
+     * @throws IOException 读取失败
+     */
+    private Movie readMovie(JsonReader json) throws IOException {
+        Movie movie = new Movie();
+        json.beginObject();
+        while (json.hasNext()) {
+            String field = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "vod_name":
+                    //电影名称就是vod_name字段，处理Unicode转义字符和HTML实体
+                    movie.setName(decodeText(json.nextString()));
+                    break;
+                case "vod_pic":
+                    //海报信息是vod_pic字段
+                    movie.setPoster(json.nextString());
+                    break;
+                case "vod_play_url":
+                    //播放地址是vod_play_url字段
+                    movie.setPlayUrl(json.nextString());
+                    break;
+                case "vod_content":
+                    //简介是vod_content字段
+                    movie.setDescription(decodeText(json.nextString()));
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        return movie;
+    }
+    
+    /**
+     * 解码接口文本字段中残留的Unicode转义字符和HTML实体
+     * 
+     * 名称和简介会被界面插入到HTML中，表示标记字符的实体（&amp;lt;、&amp;gt;、&amp;quot;、&amp;amp;、&amp;apos;）保持转义
+     * 
+     * @param text 字段值
+     * @return 解码后的字段值，没有需要解码的内容时返回原值
+     */
+    private static String decodeText(String text) {
+        return TextUtil.decodeTextEntities(TextUtil.unescapeUnicode(text));
+    }
 
     /**
      * 使用多线程获取所有页面数据
@@ -200,10 +277,10 @@ public class BfzyMovieService implements MovieService {
 
         for (Element item : movieItems) {
             // 选择电影名称
-            String name = unescapeUnicode(item.select(".module-poster-item-title").text());
+            String name = TextUtil.unescapeUnicode(item.select(".module-poster-item-title").text());
             
             // 选择剧情描述
-            String description = unescapeUnicode(item.select(".module-item-note").first().text());
+            String description = TextUtil.unescapeUnicode(item.select(".module-item-note").first().text());
             
             // 获取播放链接
             String playUrl = baseUrl + item.select(".module-poster-item-link").attr("href");
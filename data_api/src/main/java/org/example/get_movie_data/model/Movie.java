@@ -13,9 +13,12 @@ import java.util.List;
  * @version 1.0.0
  */
 @XmlRootElement(name = "movie")
-@XmlType(propOrder = {"name", "description", "finished", "playUrl", "episodes", "poster", "baseUrl", "episodeList"})
+@XmlType(propOrder = {"movieId", "name", "description", "finished", "playUrl", "episodes", "poster", "baseUrl", "episodeList"})
 public class Movie {
     
+    /** 电影ID，由数据源基础URL和播放地址计算，可代替播放地址请求剧集和M3U8地址 */
+    private String movieId;
+    
     /** 电影名称 */
     private String name;
     
@@ -40,6 +43,45 @@ public class Movie {
     /** 剧集列表 */
     private List<Episode> episodeList;
 
+    public Movie() {
+    }
+
+    /**
+     * 复制电影信息，剧集列表共享同一个实例
+     * 
+     * @param other 被复制的电影
+     */
+    public Movie(Movie other) {
+        this.movieId = other.movieId;
+        this.name = other.name;
+        this.description = other.description;
+        this.finished = other.finished;
+        this.playUrl = other.playUrl;
+        this.episodes = other.episodes;
+        this.poster = other.poster;
+        this.baseUrl = other.baseUrl;
+        this.episodeList = other.episodeList;
+    }
+
+    /**
+     * 获取电影ID
+     * 
+     * @return 电影ID
+     */
+    @XmlElement(name = "movieId")
+    public String getMovieId() {
+        return movieId;
+    }
+
+    /**
+     * 设置电影ID
+     * 
+     * @param movieId 电影ID
+     */
+    public void setMovieId(String movieId) {
+        this.movieId = movieId;
+    }
+
     /**
      * 获取电影名称
      * 
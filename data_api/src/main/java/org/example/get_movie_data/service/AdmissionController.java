@@ -0,0 +1,242 @@
+package org.example.get_movie_data.service;
+
+import io.micrometer.core.instrument.Metrics;
+import org.example.get_movie_data.util.PriorityScheduler;
+import org.example.get_movie_data.util.RequestPriority;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * 入站请求准入控制
+ * 
+ * 跟踪正在处理的请求数和上游排队时间，在服务无法按时完成更多工作时尽早拒绝请求，
+ * 而不是让请求在队列中堆积直到全部超时：
+ * <ul>
+ *   <li>正在处理的请求数达到上限时，直接返回503</li>
+ *   <li>上游排队时间在一个完整的观察区间内始终高于目标值时（CoDel的判断方式，短暂的突发不会触发），
+ *       进入过载状态：播放请求照常处理，搜索和批量请求只返回缓存的响应，没有缓存时返回503</li>
+ * </ul>
+ * 被拒绝的请求数按原因记录在movie.admission.shed指标中。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+@Component
+public class AdmissionController {
+    private static final Logger logger = Logger.getLogger(AdmissionController.class.getName());
+    
+    // 当前线程处理的请求是否只能使用缓存
+    private static final ThreadLocal<Boolean> CACHE_ONLY = new ThreadLocal<>();
+    
+    /**
+     * 准入结果
+     */
+    public enum Admission {
+        /**
+         * 正常处理
+         */
+        ADMITTED,
+        
+        /**
+         * 只返回缓存的响应
+         */
+        CACHE_ONLY,
+        
+        /**
+         * 拒绝
+         */
+        REJECTED
+    }
+    
+    // 是否启用准入控制
+    @Value("${movie.admission.enabled:true}")
+    private boolean enabled;
+    
+    // 同时处理的请求数上限
+    @Value("${movie.admission.max-in-flight:200}")
+    private int maxInFlight;
+    
+    // 上游排队时间的目标值（毫秒）
+    @Value("${movie.admission.target-delay:500}")
+    private long targetDelayMillis;
+    
+    // 观察区间（毫秒）
+    @Value("${movie.admission.interval:1000}")
+    private long intervalMillis;
+    
+    // 拒绝时建议客户端重试前等待的秒数
+    @Value("${movie.admission.retry-after:5}")
+    private long retryAfterSeconds;
+    
+    @Autowired
+    private MovieServiceManager movieServiceManager;
+    
+    // 正在处理的请求数
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    // 当前观察区间的开始时间、最小排队时间和样本数
+    private long intervalStart = System.nanoTime();
+    private long intervalMinDelay = Long.MAX_VALUE;
+    private int intervalSamples;
+    
+    // 下一次评估的时间，未到时不需要加锁
+    private volatile long nextEvaluation = System.nanoTime();
+    
+    // 是否处于过载状态
+    private volatile boolean overloaded;
+    
+    @PostConstruct
+    public void init() {
+        PriorityScheduler scheduler = movieServiceManager.getUpstreamScheduler();
+        if (scheduler != null) {
+            scheduler.setDelayListener(this::recordQueueDelay);
+        }
+        Metrics.gauge("movie.admission.in-flight", inFlight);
+        Metrics.gauge("movie.admission.overloaded", this, controller -> controller.overloaded ? 1 : 0);
+        logger.info("Admission control " + (enabled ? "enabled" : "disabled") + ", max in-flight: " + maxInFlight
+                + ", target delay: " + targetDelayMillis + "ms, interval: " + intervalMillis + "ms");
+    }
+    
+    /**
+     * 请求准入
+     * 
+     * 准入的请求（包括只能使用缓存的请求）结束时必须调用{@link #leave}
+     * 
+     * @param priority 请求的上游优先级
+     * @return 准入结果
+     */
+    public Admission tryAdmit(RequestPriority priority) {
+        if (!enabled) {
+            return Admission.ADMITTED;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            shed("in-flight");
+            return Admission.REJECTED;
+        }
+        if (priority != RequestPriority.INTERACTIVE && isOverloaded()) {
+            CACHE_ONLY.set(Boolean.TRUE);
+            return Admission.CACHE_ONLY;
+        }
+        return Admission.ADMITTED;
+    }
+    
+    /**
+     * 准入的请求结束
+     */
+    public void leave() {
+        if (enabled) {
+            inFlight.decrementAndGet();
+        }
+    }
+    
+    /**
+     * 清除当前线程的只使用缓存标记
+     */
+    public void clearThread() {
+        CACHE_ONLY.remove();
+    }
+    
+    /**
+     * 在发起上游请求前调用，当前请求只能使用缓存时拒绝
+     * 
+     * @throws OverloadedException 当前请求只能使用缓存
+     */
+    public void requireUpstream() {
+        if (Boolean.TRUE.equals(CACHE_ONLY.get())) {
+            shed("overload");
+            throw new OverloadedException("Service overloaded, only cached responses are served", retryAfterSeconds);
+        }
+    }
+    
+    /**
+     * 记录一次上游排队时间
+     * 
+     * @param delayNanos 排队时间（纳秒）
+     */
+    public synchronized void recordQueueDelay(long delayNanos) {
+        evaluate(System.nanoTime());
+        intervalMinDelay = Math.min(intervalMinDelay, delayNanos);
+        intervalSamples++;
+    }
+    
+    /**
+     * 是否处于过载状态
+     * 
+     * @return true表示过载
+     */
+    public boolean isOverloaded() {
+        long now = System.nanoTime();
+        if (now - nextEvaluation >= 0) {
+            synchronized (this) {
+                evaluate(now);
+            }
+        }
+        return overloaded;
+    }
+    
+    /**
+     * 观察区间结束时，根据区间内的最小排队时间更新过载状态
+     * 
+     * 区间内没有请求获得名额但仍有请求在排队时（名额被长时间占用），以队首请求的等待时间作为排队时间
+     */
+    private void evaluate(long now) {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        if (now - intervalStart < intervalNanos) {
+            return;
+        }
+        long delay = intervalSamples > 0 ? intervalMinDelay : 0;
+        PriorityScheduler scheduler = movieServiceManager.getUpstreamScheduler();
+        if (intervalSamples == 0 && scheduler != null) {
+            delay = scheduler.getHeadWaitNanos();
+        }
+        
+        boolean wasOverloaded = overloaded;
+        overloaded = delay > TimeUnit.MILLISECONDS.toNanos(targetDelayMillis);
+        if (overloaded != wasOverloaded) {
+            if (overloaded) {
+                logger.warning("Upstream queue delay " + TimeUnit.NANOSECONDS.toMillis(delay) + "ms above target, serving search from cache only");
+            } else {
+                logger.info("Upstream queue delay back below target, resuming normal admission");
+            }
+        }
+        
+        intervalStart = now;
+        intervalMinDelay = Long.MAX_VALUE;
+        intervalSamples = 0;
+        nextEvaluation = now + intervalNanos;
+    }
+    
+    /**
+     * 记录被拒绝的请求
+     * 
+     * @param reason 拒绝原因
+     */
+    private void shed(String reason) {
+        Metrics.counter("movie.admission.shed", "reason", reason).increment();
+    }
+    
+    /**
+     * 获取建议客户端重试前等待的秒数
+     * 
+     * @return 秒数
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+    
+    /**
+     * 获取正在处理的请求数
+     * 
+     * @return 请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.get_movie_data.service;
+
+import org.example.get_movie_data.model.Movie;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步电影服务接口
+ * 
+ * 与{@link MovieService}对应的非阻塞接口，方法立即返回CompletableFuture，等待上游响应期间不占用调用线程。
+ * 上游请求失败时Future以{@link DataSourceException}异常完成。
+ * 只实现了阻塞接口的数据源可以通过{@link AsyncMovieServiceAdapter}使用，
+ * 只实现了异步接口的数据源可以通过{@link BlockingMovieServiceAdapter}作为阻塞服务注册。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public interface AsyncMovieService {
+
+    /**
+     * 根据关键词异步搜索电影
+     * 
+     * @param baseUrl 基础URL，用于确定数据源
+     * @param keyword 搜索关键词
+     * @return 电影列表的Future
+     */
+    CompletableFuture<List<Movie>> searchMoviesAsync(String baseUrl, String keyword);
+
+    /**
+     * 异步获取指定电影的所有剧集
+     * 
+     * @param baseUrl 基础URL，用于确定数据源
+     * @param playUrl 播放地址
+     * @return 剧集列表的Future
+     */
+    CompletableFuture<List<Movie.Episode>> getEpisodesAsync(String baseUrl, String playUrl);
+
+    /**
+     * 异步获取指定剧集的M3U8播放地址
+     * 
+     * @param baseUrl 基础URL，用于确定数据源
+     * @param episodeUrl 剧集播放地址
+     * @return M3U8播放地址的Future
+     */
+    CompletableFuture<String> getM3u8UrlAsync(String baseUrl, String episodeUrl);
+}
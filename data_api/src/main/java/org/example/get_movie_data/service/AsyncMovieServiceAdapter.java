@@ -0,0 +1,62 @@
+package org.example.get_movie_data.service;
+
+import org.example.get_movie_data.model.Movie;
+import org.example.get_movie_data.util.CancellationScope;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 阻塞服务到异步接口的适配器
+ * 
+ * 在指定线程池中执行阻塞的{@link MovieService}方法，使只实现了阻塞接口的数据源也能以异步方式调用。
+ * 返回的Future被取消时，中止阻塞方法中通过HttpClientUtil发出的HTTP调用。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class AsyncMovieServiceAdapter implements AsyncMovieService {
+
+    private final MovieService movieService;
+    private final Executor executor;
+
+    /**
+     * 创建适配器
+     * 
+     * @param movieService 阻塞的电影服务
+     * @param executor 执行阻塞调用的线程池
+     */
+    public AsyncMovieServiceAdapter(MovieService movieService, Executor executor) {
+        this.movieService = movieService;
+        this.executor = executor;
+    }
+
+    /**
+     * 获取服务的异步视图，服务本身实现了异步接口时直接使用
+     * 
+     * @param movieService 电影服务
+     * @param executor 执行阻塞调用的线程池
+     * @return 异步电影服务
+     */
+    public static AsyncMovieService of(MovieService movieService, Executor executor) {
+        if (movieService instanceof AsyncMovieService) {
+            return (AsyncMovieService) movieService;
+        }
+        return new AsyncMovieServiceAdapter(movieService, executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Movie>> searchMoviesAsync(String baseUrl, String keyword) {
+        return CancellationScope.supplyAsync(() -> movieService.searchMovies(baseUrl, keyword), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Movie.Episode>> getEpisodesAsync(String baseUrl, String playUrl) {
+        return CancellationScope.supplyAsync(() -> movieService.getEpisodes(baseUrl, playUrl), executor);
+    }
+
+    @Override
+    public CompletableFuture<String> getM3u8UrlAsync(String baseUrl, String episodeUrl) {
+        return CancellationScope.supplyAsync(() -> movieService.getM3u8Url(baseUrl, episodeUrl), executor);
+    }
+}
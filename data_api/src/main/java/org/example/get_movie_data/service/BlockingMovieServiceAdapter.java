@@ -0,0 +1,97 @@
+package org.example.get_movie_data.service;
+
+import org.example.get_movie_data.model.Movie;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 异步服务到阻塞接口的适配器
+ * 
+ * 等待{@link AsyncMovieService}的结果，使只实现了异步接口的数据源可以作为{@link MovieService}注册。
+ * Future异常完成时抛出原始的运行时异常。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class BlockingMovieServiceAdapter implements MovieService {
+
+    private final AsyncMovieService asyncMovieService;
+
+    /**
+     * 创建适配器
+     * 
+     * @param asyncMovieService 异步电影服务
+     */
+    public BlockingMovieServiceAdapter(AsyncMovieService asyncMovieService) {
+        this.asyncMovieService = asyncMovieService;
+    }
+
+    /**
+     * 获取被适配的异步服务
+     * 
+     * @return 异步电影服务
+     */
+    public AsyncMovieService getAsyncMovieService() {
+        return asyncMovieService;
+    }
+
+    @Override
+    public List<Movie> searchMovies(String baseUrl, String keyword) {
+        return await(asyncMovieService.searchMoviesAsync(baseUrl, keyword));
+    }
+
+    @Override
+    public List<Movie.Episode> getEpisodes(String baseUrl, String playUrl) {
+        return await(asyncMovieService.getEpisodesAsync(baseUrl, playUrl));
+    }
+
+    @Override
+    public String getM3u8Url(String baseUrl, String episodeUrl) {
+        return await(asyncMovieService.getM3u8UrlAsync(baseUrl, episodeUrl));
+    }
+
+    @Override
+    public MovieService getMovieServiceByDatasource(String datasourceId) {
+        if (asyncMovieService instanceof MovieService) {
+            return ((MovieService) asyncMovieService).getMovieServiceByDatasource(datasourceId);
+        }
+        return null;
+    }
+
+    /**
+     * 等待Future完成并还原异常
+     * 
+     * @param future 异步结果
+     * @return 结果
+     */
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DataSourceException("Interrupted while waiting for data source", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * 将Future的异常还原为运行时异常
+     * 
+     * @param throwable Future的异常
+     * @return 运行时异常
+     */
+    static RuntimeException unwrap(Throwable throwable) {
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        return new DataSourceException("Data source request failed", throwable);
+    }
+}
@@ -1,6 +1,11 @@
 package org.example.get_movie_data.service;
 
 import org.example.get_movie_data.model.Movie;
+import org.example.get_movie_data.util.StringPool;
+import org.example.get_movie_data.util.TextUtil;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -10,9 +15,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.Map;
 import java.util.logging.Logger;
 import java.util.concurrent.Executors;
@@ -36,23 +46,103 @@ public class CacheManager {
     private static final String SEARCH_CACHE_DIR = "cache/search";
     private static final String EPISODES_CACHE_DIR = "cache/episodes";
     private static final String M3U8_CACHE_DIR = "cache/m3u8";
+    private static final String MOVIE_CACHE_DIR = "cache/movies";
+    
+    // 缓存键中超过该长度的参数会被替换为摘要，避免超长的播放地址进入缓存键和文件名
+    private static final int MAX_KEY_PART_LENGTH = 64;
     
     // 缓存过期时间（毫秒）- 默认2小时
     private static final long CACHE_EXPIRE_TIME = 2 * 60 * 60 * 1000;
     
+    // 电影索引条目批量写入文件的间隔（毫秒）
+    private static final long MOVIE_FLUSH_INTERVAL = 5000;
+    
     // 内存缓存清理间隔（毫秒）- 默认30分钟
     private static final long CACHE_CLEANUP_INTERVAL = 30 * 60 * 1000;
     
+    // 内存缓存默认最大条目数
+    public static final int DEFAULT_MEMORY_MAX_ENTRIES = 10000;
+    
+    // 负缓存默认最大条目数
+    public static final int DEFAULT_NEGATIVE_MAX_ENTRIES = 10000;
+    
+    // 字符串去重池的最大条目数和可入池字符串的最大长度；只有基础URL和剧集标题入池，它们都很短
+    private static final int STRING_POOL_MAX_SIZE = 10000;
+    private static final int STRING_POOL_MAX_LENGTH = 128;
+    
+    // "数据源返回无结果"的负缓存过期时间（毫秒）- 默认5分钟
+    public static final long DEFAULT_NEGATIVE_EMPTY_TTL = 5 * 60 * 1000;
+    
+    // "数据源请求失败"的负缓存过期时间（毫秒）- 默认30秒
+    public static final long DEFAULT_NEGATIVE_FAILURE_TTL = 30 * 1000;
+    
     // ObjectMapper用于序列化和反序列化
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     // 内存缓存，避免频繁读取文件
     private final ConcurrentHashMap<String, CacheEntry> memoryCache = new ConcurrentHashMap<>();
     
+    // 负缓存，记录空结果和失败结果，仅保存在内存中
+    private final ConcurrentHashMap<String, NegativeEntry> negativeCache = new ConcurrentHashMap<>();
+    
+    // 负缓存过期时间（毫秒）
+    private final long negativeEmptyTtl;
+    private final long negativeFailureTtl;
+    
+    // 负缓存条目数上限，负缓存的键来自用户输入的关键词，必须有上限；
+    // 实际容量随内存缓存容量按比例缩放，堆内存压力下一起缩小
+    private final int negativeMaxEntries;
+    
+    // 内存缓存条目数上限，当前容量会根据堆内存压力在(0, memoryMaxEntries]之间调整
+    private final int memoryMaxEntries;
+    private volatile int memoryCapacity;
+    
+    // 字符串去重池，规范化进入缓存的电影和剧集对象中重复的字符串
+    private final StringPool stringPool = new StringPool(STRING_POOL_MAX_SIZE, STRING_POOL_MAX_LENGTH);
+    
+    // 缓存数据变更监听器，缓存键对应的数据被替换或过期时通知
+    private final List<Consumer<String>> invalidationListeners = new CopyOnWriteArrayList<>();
+    
+    // 是否正在淘汰内存缓存条目，避免并发写入时重复淘汰
+    private final AtomicBoolean trimming = new AtomicBoolean(false);
+    private final AtomicBoolean trimmingNegative = new AtomicBoolean(false);
+    
+    // 等待批量写入文件的电影索引条目，写入前内存缓存淘汰的条目仍从这里读取
+    private final ConcurrentHashMap<String, CacheFileContent<Movie>> pendingMovies = new ConcurrentHashMap<>();
+    
     // 定时清理服务
     private final ScheduledExecutorService cleanupExecutor = Executors.newSingleThreadScheduledExecutor();
     
     public CacheManager() {
+        this(DEFAULT_NEGATIVE_EMPTY_TTL, DEFAULT_NEGATIVE_FAILURE_TTL, DEFAULT_MEMORY_MAX_ENTRIES);
+    }
+    
+    /**
+     * 创建缓存管理器
+     * 
+     * @param negativeEmptyTtl 空结果负缓存过期时间（毫秒）
+     * @param negativeFailureTtl 失败结果负缓存过期时间（毫秒）
+     * @param memoryMaxEntries 内存缓存最大条目数
+     */
+    public CacheManager(long negativeEmptyTtl, long negativeFailureTtl, int memoryMaxEntries) {
+        this(negativeEmptyTtl, negativeFailureTtl, memoryMaxEntries, DEFAULT_NEGATIVE_MAX_ENTRIES);
+    }
+    
+    /**
+     * 创建缓存管理器
+     * 
+     * @param negativeEmptyTtl 空结果负缓存过期时间（毫秒）
+     * @param negativeFailureTtl 失败结果负缓存过期时间（毫秒）
+     * @param memoryMaxEntries 内存缓存最大条目数
+     * @param negativeMaxEntries 负缓存最大条目数
+     */
+    public CacheManager(long negativeEmptyTtl, long negativeFailureTtl, int memoryMaxEntries, int negativeMaxEntries) {
+        this.negativeEmptyTtl = negativeEmptyTtl;
+        this.negativeFailureTtl = negativeFailureTtl;
+        this.negativeMaxEntries = Math.max(1, negativeMaxEntries);
+        this.memoryMaxEntries = Math.max(1, memoryMaxEntries);
+        this.memoryCapacity = this.memoryMaxEntries;
+        
         // 启动定时清理任务
         startCleanupTask();
     }
@@ -65,6 +155,10 @@ public class CacheManager {
                                               CACHE_CLEANUP_INTERVAL, 
                                               CACHE_CLEANUP_INTERVAL, 
                                               TimeUnit.MILLISECONDS);
+        cleanupExecutor.scheduleWithFixedDelay(this::flushMovies,
+                                              MOVIE_FLUSH_INTERVAL,
+                                              MOVIE_FLUSH_INTERVAL,
+                                              TimeUnit.MILLISECONDS);
     }
     
     /**
@@ -77,6 +171,16 @@ public class CacheManager {
             CacheEntry entry = memoryCache.get(key);
             if (entry != null && entry.isExpired()) {
                 memoryCache.remove(key);
+                notifyInvalidated(key);
+                cleanedCount++;
+            }
+        }
+        
+        for (String key : negativeCache.keySet()) {
+            NegativeEntry entry = negativeCache.get(key);
+            if (entry != null && entry.isExpired()) {
+                negativeCache.remove(key);
+                notifyInvalidated(key);
                 cleanedCount++;
             }
         }
@@ -84,6 +188,330 @@ public class CacheManager {
         if (cleanedCount > 0) {
             logger.info("Cache cleanup completed. Removed " + cleanedCount + " expired entries.");
         }
+        
+        // 字符串池满后清空，让新出现的高频字符串有机会入池
+        if (stringPool.isFull()) {
+            stringPool.clear();
+            logger.info("String pool was full and has been cleared");
+        }
+    }
+    
+    /**
+     * 规范化电影列表中重复的字符串
+     * 
+     * 只规范化确实大量重复的字段：基础URL（同一数据源的所有电影相同）和剧集标题（"第N集"等）。
+     * 海报地址和名称几乎各不相同，入池只会挤掉真正重复的字符串，不节省内存
+     * 
+     * @param movies 电影列表
+     */
+    private void deduplicateMovies(List<Movie> movies) {
+        if (movies == null) {
+            return;
+        }
+        for (Movie movie : movies) {
+            if (movie == null) {
+                continue;
+            }
+            movie.setBaseUrl(stringPool.intern(movie.getBaseUrl()));
+            deduplicateEpisodes(movie.getEpisodeList());
+        }
+    }
+    
+    /**
+     * 为搜索结果设置基础URL并规范化重复的字符串
+     * 
+     * 数据源返回的电影还没有基础URL，在写入缓存前设置，所有电影共享同一个基础URL实例
+     * 
+     * @param baseUrl 基础URL
+     * @param movies 电影列表
+     */
+    private void deduplicateMovies(String baseUrl, List<Movie> movies) {
+        if (movies == null) {
+            return;
+        }
+        String canonicalBaseUrl = stringPool.intern(baseUrl);
+        for (Movie movie : movies) {
+            if (movie != null) {
+                movie.setBaseUrl(canonicalBaseUrl);
+            }
+        }
+        deduplicateMovies(movies);
+    }
+    
+    /**
+     * 规范化剧集列表中重复的字符串
+     * 
+     * @param episodes 剧集列表
+     */
+    private void deduplicateEpisodes(List<Movie.Episode> episodes) {
+        if (episodes == null) {
+            return;
+        }
+        for (Movie.Episode episode : episodes) {
+            if (episode != null) {
+                episode.setTitle(stringPool.intern(episode.getTitle()));
+            }
+        }
+    }
+    
+    /**
+     * 生成搜索结果的缓存键
+     * 
+     * @param baseUrl 基础URL
+     * @param keyword 搜索关键词
+     * @return 缓存键
+     */
+    public static String searchKey(String baseUrl, String keyword) {
+        return "search_" + compactKeyPart(baseUrl) + "_" + compactKeyPart(keyword);
+    }
+    
+    /**
+     * 生成剧集列表的缓存键
+     * 
+     * @param baseUrl 基础URL
+     * @param playUrl 播放地址
+     * @return 缓存键
+     */
+    public static String episodesKey(String baseUrl, String playUrl) {
+        return "episodes_" + compactKeyPart(baseUrl) + "_" + compactKeyPart(playUrl);
+    }
+    
+    /**
+     * 生成M3U8 URL的缓存键
+     * 
+     * @param baseUrl 基础URL
+     * @param episodeUrl 剧集播放地址
+     * @return 缓存键
+     */
+    public static String m3u8Key(String baseUrl, String episodeUrl) {
+        return "m3u8_" + compactKeyPart(baseUrl) + "_" + compactKeyPart(episodeUrl);
+    }
+    
+    /**
+     * 生成电影索引的缓存键
+     * 
+     * @param movieId 电影ID
+     * @return 缓存键
+     */
+    public static String movieKey(String movieId) {
+        return "movie_" + compactKeyPart(movieId);
+    }
+    
+    /**
+     * 压缩缓存键中的参数
+     * 
+     * 超过长度上限的参数（例如包含全部剧集的播放地址）替换为"~"加SHA-256摘要，短参数保持原样
+     * 
+     * @param part 参数
+     * @return 压缩后的参数
+     */
+    public static String compactKeyPart(String part) {
+        if (part == null || part.length() <= MAX_KEY_PART_LENGTH) {
+            return part;
+        }
+        return "~" + TextUtil.hex(TextUtil.sha256(part), 16);
+    }
+    
+    /**
+     * 注册缓存数据变更监听器
+     * 
+     * 缓存键对应的数据被新数据替换、被负缓存替换或过期被清理时，监听器会收到该缓存键
+     * 
+     * @param listener 监听器
+     */
+    public void addInvalidationListener(Consumer<String> listener) {
+        invalidationListeners.add(listener);
+    }
+    
+    /**
+     * 注销缓存数据变更监听器
+     * 
+     * @param listener 监听器
+     */
+    public void removeInvalidationListener(Consumer<String> listener) {
+        invalidationListeners.remove(listener);
+    }
+    
+    /**
+     * 删除缓存键对应的内存缓存、负缓存和文件缓存
+     * 
+     * @param cacheKey 缓存键
+     */
+    public void remove(String cacheKey) {
+        memoryCache.remove(cacheKey);
+        negativeCache.remove(cacheKey);
+        pendingMovies.remove(cacheKey);
+        Path cacheFile;
+        if (cacheKey.startsWith("search_")) {
+            cacheFile = getSearchCacheFilePath(cacheKey);
+        } else if (cacheKey.startsWith("episodes_")) {
+            cacheFile = getEpisodesCacheFilePath(cacheKey);
+        } else if (cacheKey.startsWith("m3u8_")) {
+            cacheFile = getM3u8CacheFilePath(cacheKey);
+        } else {
+            cacheFile = getMovieCacheFilePath(cacheKey);
+        }
+        try {
+            Files.deleteIfExists(cacheFile);
+        } catch (IOException e) {
+            logger.warning("Error deleting cache file: " + e.getMessage());
+        }
+        notifyInvalidated(cacheKey);
+    }
+    
+    /**
+     * 通知监听器缓存键对应的数据已失效
+     * 
+     * @param cacheKey 缓存键
+     */
+    private void notifyInvalidated(String cacheKey) {
+        for (Consumer<String> listener : invalidationListeners) {
+            try {
+                listener.accept(cacheKey);
+            } catch (RuntimeException e) {
+                logger.warning("Cache invalidation listener failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 获取缓存键对应数据的过期时间
+     * 
+     * 只查询内存中的正缓存和负缓存，不读取文件
+     * 
+     * @param cacheKey 缓存键
+     * @return 过期时间戳（毫秒），如果内存中没有有效数据则返回0
+     */
+    public long getExpireTime(String cacheKey) {
+        CacheEntry entry = memoryCache.get(cacheKey);
+        if (entry != null && !entry.isExpired()) {
+            return entry.expireTime;
+        }
+        NegativeEntry negativeEntry = negativeCache.get(cacheKey);
+        if (negativeEntry != null && !negativeEntry.isExpired()) {
+            return negativeEntry.expireTime;
+        }
+        return 0;
+    }
+    
+    /**
+     * 写入内存缓存，超出当前容量时淘汰最久未访问的条目
+     * 
+     * @param cacheKey 缓存键
+     * @param entry 缓存条目
+     */
+    private void putMemory(String cacheKey, CacheEntry entry) {
+        memoryCache.put(cacheKey, entry);
+        if (memoryCache.size() > memoryCapacity) {
+            trimMemoryCache();
+        }
+    }
+    
+    /**
+     * 将内存缓存淘汰到当前容量的90%
+     * 
+     * 所有条目在写入时都已同步写入文件缓存，因此从内存中淘汰的条目之后仍可以从文件中读回
+     */
+    private void trimMemoryCache() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int capacity = memoryCapacity;
+            int targetSize = Math.max(1, capacity - capacity / 10);
+            int excess = memoryCache.size() - targetSize;
+            if (excess <= 0) {
+                return;
+            }
+            
+            // 按最近访问时间排序，淘汰最久未访问的条目
+            List<Map.Entry<String, CacheEntry>> entries = new ArrayList<>(memoryCache.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().getLastAccessTime()));
+            
+            int evictedCount = 0;
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                Map.Entry<String, CacheEntry> entry = entries.get(i);
+                if (memoryCache.remove(entry.getKey(), entry.getValue())) {
+                    evictedCount++;
+                }
+            }
+            logger.info("Evicted " + evictedCount + " entries from memory cache, capacity: " + capacity);
+        } finally {
+            trimming.set(false);
+        }
+    }
+    
+    /**
+     * 调整内存缓存容量
+     * 
+     * 缩小容量时会在后台线程中淘汰多余的条目，容量不会超过配置的最大条目数
+     * 
+     * @param capacity 新的容量
+     */
+    public void setMemoryCapacity(int capacity) {
+        int newCapacity = Math.max(1, Math.min(capacity, memoryMaxEntries));
+        int oldCapacity = memoryCapacity;
+        if (newCapacity == oldCapacity) {
+            return;
+        }
+        memoryCapacity = newCapacity;
+        logger.info("Memory cache capacity changed: " + oldCapacity + " -> " + newCapacity);
+        
+        if (memoryCache.size() > newCapacity || negativeCache.size() > getNegativeCapacity()) {
+            try {
+                cleanupExecutor.execute(() -> {
+                    trimMemoryCache();
+                    trimNegativeCache();
+                });
+            } catch (RuntimeException e) {
+                logger.warning("Failed to schedule memory cache trim: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 获取负缓存当前容量，按内存缓存当前容量占最大条目数的比例缩放
+     * 
+     * @return 当前容量
+     */
+    public int getNegativeCapacity() {
+        return (int) Math.max(1, (long) negativeMaxEntries * memoryCapacity / memoryMaxEntries);
+    }
+    
+    /**
+     * 获取负缓存当前条目数
+     * 
+     * @return 条目数
+     */
+    public int getNegativeSize() {
+        return negativeCache.size();
+    }
+    
+    /**
+     * 获取内存缓存当前容量
+     * 
+     * @return 当前容量
+     */
+    public int getMemoryCapacity() {
+        return memoryCapacity;
+    }
+    
+    /**
+     * 获取内存缓存最大条目数
+     * 
+     * @return 最大条目数
+     */
+    public int getMemoryMaxEntries() {
+        return memoryMaxEntries;
+    }
+    
+    /**
+     * 获取内存缓存当前条目数
+     * 
+     * @return 条目数
+     */
+    public int getMemorySize() {
+        return memoryCache.size();
     }
     
     /**
@@ -99,7 +527,9 @@ public class CacheManager {
             cleanupExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        flushMovies();
         memoryCache.clear();
+        negativeCache.clear();
     }
     
     /**
@@ -108,21 +538,203 @@ public class CacheManager {
     private static class CacheEntry {
         private final Object data;
         private final long expireTime;
+        private volatile long lastAccessTime;
         
         public CacheEntry(Object data) {
+            this(data, System.currentTimeMillis() + CACHE_EXPIRE_TIME);
+        }
+        
+        public CacheEntry(Object data, long expireTime) {
             this.data = data;
-            this.expireTime = System.currentTimeMillis() + CACHE_EXPIRE_TIME;
+            this.expireTime = expireTime;
+            this.lastAccessTime = System.currentTimeMillis();
         }
         
         public Object getData() {
+            lastAccessTime = System.currentTimeMillis();
             return data;
         }
         
+        public long getLastAccessTime() {
+            return lastAccessTime;
+        }
+        
         public boolean isExpired() {
             return System.currentTimeMillis() > expireTime;
         }
     }
     
+    /**
+     * 负缓存类型
+     */
+    public enum NegativeType {
+        /** 数据源正常响应但没有结果 */
+        EMPTY,
+        /** 数据源请求失败 */
+        FAILED
+    }
+    
+    /**
+     * 负缓存条目内部类
+     */
+    private static class NegativeEntry {
+        private final NegativeType type;
+        private final long expireTime;
+        
+        public NegativeEntry(NegativeType type, long ttl) {
+            this.type = type;
+            this.expireTime = System.currentTimeMillis() + ttl;
+        }
+        
+        public NegativeType getType() {
+            return type;
+        }
+        
+        public boolean isExpired() {
+            return System.currentTimeMillis() > expireTime;
+        }
+    }
+    
+    /**
+     * 查询负缓存
+     * 
+     * @param cacheKey 缓存键
+     * @return 负缓存类型，如果没有记录或已过期则返回null
+     */
+    private NegativeType getNegative(String cacheKey) {
+        NegativeEntry entry = negativeCache.get(cacheKey);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            negativeCache.remove(cacheKey, entry);
+            return null;
+        }
+        return entry.getType();
+    }
+    
+    /**
+     * 写入负缓存
+     * 
+     * 负缓存与正缓存分开存放，只在正缓存未命中时才会被查询，失败结果不会写入正缓存
+     * 
+     * @param cacheKey 缓存键
+     * @param type 负缓存类型
+     */
+    private void putNegative(String cacheKey, NegativeType type) {
+        long ttl = type == NegativeType.FAILED ? negativeFailureTtl : negativeEmptyTtl;
+        if (ttl <= 0) {
+            return;
+        }
+        negativeCache.put(cacheKey, new NegativeEntry(type, ttl));
+        notifyInvalidated(cacheKey);
+        if (negativeCache.size() > getNegativeCapacity()) {
+            trimNegativeCache();
+        }
+    }
+    
+    /**
+     * 将负缓存淘汰到当前容量的90%
+     * 
+     * 先移除已过期的条目，仍然超出时按过期时间淘汰最早过期的条目；被淘汰的键只是失去负缓存，下次请求会再访问数据源
+     */
+    private void trimNegativeCache() {
+        if (!trimmingNegative.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int capacity = getNegativeCapacity();
+            int targetSize = Math.max(1, capacity - capacity / 10);
+            if (negativeCache.size() <= targetSize) {
+                return;
+            }
+            negativeCache.entrySet().removeIf(entry -> entry.getValue().isExpired());
+            
+            int excess = negativeCache.size() - targetSize;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<String, NegativeEntry>> entries = new ArrayList<>(negativeCache.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().expireTime));
+            int evictedCount = 0;
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                Map.Entry<String, NegativeEntry> entry = entries.get(i);
+                if (negativeCache.remove(entry.getKey(), entry.getValue())) {
+                    evictedCount++;
+                }
+            }
+            logger.info("Evicted " + evictedCount + " entries from negative cache, capacity: " + capacity);
+        } finally {
+            trimmingNegative.set(false);
+        }
+    }
+    
+    /**
+     * 获取搜索结果的负缓存
+     * 
+     * @param baseUrl 基础URL
+     * @param keyword 搜索关键词
+     * @return 负缓存类型，如果没有记录或已过期则返回null
+     */
+    public NegativeType getNegativeSearchResult(String baseUrl, String keyword) {
+        return getNegative(searchKey(baseUrl, keyword));
+    }
+    
+    /**
+     * 缓存空的或失败的搜索结果
+     * 
+     * @param baseUrl 基础URL
+     * @param keyword 搜索关键词
+     * @param type 负缓存类型
+     */
+    public void cacheNegativeSearchResult(String baseUrl, String keyword, NegativeType type) {
+        putNegative(searchKey(baseUrl, keyword), type);
+    }
+    
+    /**
+     * 获取剧集列表的负缓存
+     * 
+     * @param baseUrl 基础URL
+     * @param playUrl 播放地址
+     * @return 负缓存类型，如果没有记录或已过期则返回null
+     */
+    public NegativeType getNegativeEpisodes(String baseUrl, String playUrl) {
+        return getNegative(episodesKey(baseUrl, playUrl));
+    }
+    
+    /**
+     * 缓存空的或失败的剧集列表
+     * 
+     * @param baseUrl 基础URL
+     * @param playUrl 播放地址
+     * @param type 负缓存类型
+     */
+    public void cacheNegativeEpisodes(String baseUrl, String playUrl, NegativeType type) {
+        putNegative(episodesKey(baseUrl, playUrl), type);
+    }
+    
+    /**
+     * 获取M3U8 URL的负缓存
+     * 
+     * @param baseUrl 基础URL
+     * @param episodeUrl 剧集播放地址
+     * @return 负缓存类型，如果没有记录或已过期则返回null
+     */
+    public NegativeType getNegativeM3u8Url(String baseUrl, String episodeUrl) {
+        return getNegative(m3u8Key(baseUrl, episodeUrl));
+    }
+    
+    /**
+     * 缓存空的或失败的M3U8 URL
+     * 
+     * @param baseUrl 基础URL
+     * @param episodeUrl 剧集播放地址
+     * @param type 负缓存类型
+     */
+    public void cacheNegativeM3u8Url(String baseUrl, String episodeUrl, NegativeType type) {
+        putNegative(m3u8Key(baseUrl, episodeUrl), type);
+    }
+    
     /**
      * 获取搜索结果缓存
      * 
@@ -131,7 +743,7 @@ public class CacheManager {
      * @return 缓存的电影列表，如果没有缓存或缓存过期则返回null
      */
     public List<Movie> getCachedSearchResults(String baseUrl, String keyword) {
-        String cacheKey = "search_" + baseUrl + "_" + keyword;
+        String cacheKey = searchKey(baseUrl, keyword);
         
         // 先检查内存缓存
         CacheEntry memoryEntry = memoryCache.get(cacheKey);
@@ -150,9 +762,10 @@ public class CacheManager {
                 // 检查是否过期
                 if (!cacheFileContent.isExpired()) {
                     List<Movie> movies = cacheFileContent.getData();
+                    deduplicateMovies(baseUrl, movies);
                     
                     // 更新内存缓存
-                    memoryCache.put(cacheKey, new CacheEntry(movies));
+                    putMemory(cacheKey, new CacheEntry(movies, cacheFileContent.getExpireTime()));
                     
                     return movies;
                 }
@@ -172,12 +785,15 @@ public class CacheManager {
      * @param movies 电影列表
      */
     public void cacheSearchResults(String baseUrl, String keyword, List<Movie> movies) {
-        String cacheKey = "search_" + baseUrl + "_" + keyword;
+        String cacheKey = searchKey(baseUrl, keyword);
+        deduplicateMovies(baseUrl, movies);
         
         try {
             // 更新内存缓存
             CacheEntry cacheEntry = new CacheEntry(movies);
-            memoryCache.put(cacheKey, cacheEntry);
+            putMemory(cacheKey, cacheEntry);
+            negativeCache.remove(cacheKey);
+            notifyInvalidated(cacheKey);
             
             // 更新文件缓存
             Path cacheFile = getSearchCacheFilePath(cacheKey);
@@ -200,7 +816,7 @@ public class CacheManager {
      * @return 缓存的剧集列表，如果没有缓存或缓存过期则返回null
      */
     public List<Movie.Episode> getCachedEpisodes(String baseUrl, String playUrl) {
-        String cacheKey = "episodes_" + baseUrl + "_" + playUrl;
+        String cacheKey = episodesKey(baseUrl, playUrl);
         
         // 先检查内存缓存
         CacheEntry memoryEntry = memoryCache.get(cacheKey);
@@ -219,9 +835,10 @@ public class CacheManager {
                 // 检查是否过期
                 if (!cacheFileContent.isExpired()) {
                     List<Movie.Episode> episodes = cacheFileContent.getData();
+                    deduplicateEpisodes(episodes);
                     
                     // 更新内存缓存
-                    memoryCache.put(cacheKey, new CacheEntry(episodes));
+                    putMemory(cacheKey, new CacheEntry(episodes, cacheFileContent.getExpireTime()));
                     
                     return episodes;
                 }
@@ -241,12 +858,15 @@ public class CacheManager {
      * @param episodes 剧集列表
      */
     public void cacheEpisodes(String baseUrl, String playUrl, List<Movie.Episode> episodes) {
-        String cacheKey = "episodes_" + baseUrl + "_" + playUrl;
+        String cacheKey = episodesKey(baseUrl, playUrl);
+        deduplicateEpisodes(episodes);
         
         try {
             // 更新内存缓存
             CacheEntry cacheEntry = new CacheEntry(episodes);
-            memoryCache.put(cacheKey, cacheEntry);
+            putMemory(cacheKey, cacheEntry);
+            negativeCache.remove(cacheKey);
+            notifyInvalidated(cacheKey);
             
             // 更新文件缓存
             Path cacheFile = getEpisodesCacheFilePath(cacheKey);
@@ -269,7 +889,7 @@ public class CacheManager {
      * @return 缓存的M3U8 URL，如果没有缓存或缓存过期则返回null
      */
     public String getCachedM3u8Url(String baseUrl, String episodeUrl) {
-        String cacheKey = "m3u8_" + baseUrl + "_" + episodeUrl;
+        String cacheKey = m3u8Key(baseUrl, episodeUrl);
         
         // 先检查内存缓存
         CacheEntry memoryEntry = memoryCache.get(cacheKey);
@@ -290,7 +910,7 @@ public class CacheManager {
                     String m3u8Url = cacheFileContent.getData();
                     
                     // 更新内存缓存
-                    memoryCache.put(cacheKey, new CacheEntry(m3u8Url));
+                    putMemory(cacheKey, new CacheEntry(m3u8Url, cacheFileContent.getExpireTime()));
                     
                     return m3u8Url;
                 }
@@ -310,12 +930,14 @@ public class CacheManager {
      * @param m3u8Url M3U8 URL
      */
     public void cacheM3u8Url(String baseUrl, String episodeUrl, String m3u8Url) {
-        String cacheKey = "m3u8_" + baseUrl + "_" + episodeUrl;
+        String cacheKey = m3u8Key(baseUrl, episodeUrl);
         
         try {
             // 更新内存缓存
             CacheEntry cacheEntry = new CacheEntry(m3u8Url);
-            memoryCache.put(cacheKey, cacheEntry);
+            putMemory(cacheKey, cacheEntry);
+            negativeCache.remove(cacheKey);
+            notifyInvalidated(cacheKey);
             
             // 更新文件缓存
             Path cacheFile = getM3u8CacheFilePath(cacheKey);
@@ -330,6 +952,104 @@ public class CacheManager {
         }
     }
     
+    /**
+     * 获取电影索引缓存
+     * 
+     * @param movieId 电影ID
+     * @return 缓存的电影，如果没有缓存或缓存过期则返回null
+     */
+    public Movie getCachedMovie(String movieId) {
+        String cacheKey = movieKey(movieId);
+        
+        // 先检查内存缓存
+        CacheEntry memoryEntry = memoryCache.get(cacheKey);
+        if (memoryEntry != null && !memoryEntry.isExpired()) {
+            return (Movie) memoryEntry.getData();
+        }
+        
+        // 检查还没有写入文件的条目
+        CacheFileContent<Movie> pending = pendingMovies.get(cacheKey);
+        if (pending != null && !pending.isExpired()) {
+            return pending.getData();
+        }
+        
+        // 检查文件缓存
+        try {
+            Path cacheFile = getMovieCacheFilePath(cacheKey);
+            if (Files.exists(cacheFile)) {
+                String json = Files.readString(cacheFile);
+                CacheFileContent<Movie> cacheFileContent = objectMapper.readValue(json, 
+                    new TypeReference<CacheFileContent<Movie>>() {});
+                
+                // 检查是否过期
+                if (!cacheFileContent.isExpired()) {
+                    Movie movie = cacheFileContent.getData();
+                    deduplicateMovies(Collections.singletonList(movie));
+                    
+                    // 更新内存缓存
+                    putMemory(cacheKey, new CacheEntry(movie, cacheFileContent.getExpireTime()));
+                    
+                    return movie;
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Error reading movie from cache: " + e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * 缓存电影索引
+     * 
+     * 只同步写入内存缓存，文件由后台任务每隔几秒批量写入，搜索请求不等待磁盘I/O
+     * 
+     * @param movieId 电影ID
+     * @param movie 电影
+     */
+    public void cacheMovie(String movieId, Movie movie) {
+        String cacheKey = movieKey(movieId);
+        deduplicateMovies(Collections.singletonList(movie));
+        
+        CacheEntry cacheEntry = new CacheEntry(movie);
+        putMemory(cacheKey, cacheEntry);
+        pendingMovies.put(cacheKey, new CacheFileContent<>(movie, cacheEntry.expireTime));
+        notifyInvalidated(cacheKey);
+    }
+    
+    /**
+     * 把等待中的电影索引条目写入文件
+     */
+    private void flushMovies() {
+        if (pendingMovies.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(Paths.get(MOVIE_CACHE_DIR));
+        } catch (IOException e) {
+            logger.warning("Error creating movie cache directory: " + e.getMessage());
+            return;
+        }
+        int written = 0;
+        for (Map.Entry<String, CacheFileContent<Movie>> entry : pendingMovies.entrySet()) {
+            String cacheKey = entry.getKey();
+            CacheFileContent<Movie> content = entry.getValue();
+            try {
+                if (!content.isExpired()) {
+                    Files.writeString(getMovieCacheFilePath(cacheKey), objectMapper.writeValueAsString(content));
+                    written++;
+                }
+            } catch (IOException e) {
+                logger.warning("Error caching movie: " + e.getMessage());
+            }
+            // 写入期间被新条目替换时保留新条目，等待下一批
+            pendingMovies.remove(cacheKey, content);
+        }
+        if (written > 0) {
+            logger.fine("Flushed " + written + " movie index entries to disk");
+        }
+    }
+    
     /**
      * 缓存文件内容包装类
      */
@@ -337,7 +1057,8 @@ public class CacheManager {
         private final T data;
         private final long expireTime;
         
-        public CacheFileContent(T data, long expireTime) {
+        @JsonCreator
+        public CacheFileContent(@JsonProperty("data") T data, @JsonProperty("expireTime") long expireTime) {
             this.data = data;
             this.expireTime = expireTime;
         }
@@ -346,6 +1067,11 @@ public class CacheManager {
             return data;
         }
         
+        public long getExpireTime() {
+            return expireTime;
+        }
+        
+        @JsonIgnore
         public boolean isExpired() {
             return System.currentTimeMillis() > expireTime;
         }
@@ -360,7 +1086,7 @@ public class CacheManager {
     private Path getSearchCacheFilePath(String cacheKey) {
         // 在Windows系统中，文件名不能包含以下字符: < > : " / \ | ? *
         // 将这些字符替换为下划线
-        String safeCacheKey = cacheKey.replaceAll("[<>:\"/\\\\|?*]", "_");
+        String safeCacheKey = TextUtil.toFileName(cacheKey);
         return Paths.get(SEARCH_CACHE_DIR, safeCacheKey + ".cache");
     }
     
@@ -373,7 +1099,7 @@ public class CacheManager {
     private Path getEpisodesCacheFilePath(String cacheKey) {
         // 在Windows系统中，文件名不能包含以下字符: < > : " / \ | ? *
         // 将这些字符替换为下划线
-        String safeCacheKey = cacheKey.replaceAll("[<>:\"/\\\\|?*]", "_");
+        String safeCacheKey = TextUtil.toFileName(cacheKey);
         return Paths.get(EPISODES_CACHE_DIR, safeCacheKey + ".cache");
     }
     
@@ -386,7 +1112,20 @@ public class CacheManager {
     private Path getM3u8CacheFilePath(String cacheKey) {
         // 在Windows系统中，文件名不能包含以下字符: < > : " / \ | ? *
         // 将这些字符替换为下划线
-        String safeCacheKey = cacheKey.replaceAll("[<>:\"/\\\\|?*]", "_");
+        String safeCacheKey = TextUtil.toFileName(cacheKey);
         return Paths.get(M3U8_CACHE_DIR, safeCacheKey + ".cache");
     }
+    
+    /**
+     * 获取电影索引缓存文件路径
+     * 
+     * @param cacheKey 缓存键
+     * @return 缓存文件路径
+     */
+    private Path getMovieCacheFilePath(String cacheKey) {
+        // 在Windows系统中，文件名不能包含以下字符: < > : " / \ | ? *
+        // 将这些字符替换为下划线
+        String safeCacheKey = TextUtil.toFileName(cacheKey);
+        return Paths.get(MOVIE_CACHE_DIR, safeCacheKey + ".cache");
+    }
 }
\ No newline at end of file
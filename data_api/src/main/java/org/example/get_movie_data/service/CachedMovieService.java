@@ -1,7 +1,15 @@
 package org.example.get_movie_data.service;
 
 import org.example.get_movie_data.model.Movie;
+import org.example.get_movie_data.util.CancellationScope;
+import org.example.get_movie_data.util.Pipeline;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 /**
@@ -12,14 +20,27 @@ import java.util.logging.Logger;
  * @author get_movie_data team
  * @version 1.0.0
  */
-public class CachedMovieService implements MovieService {
+public class CachedMovieService implements MovieService, AsyncMovieService {
     private static final Logger logger = Logger.getLogger(CachedMovieService.class.getName());
     
     private final MovieService movieService;
+    private final AsyncMovieService asyncMovieService;
     private final CacheManager cacheManager;
     
     public CachedMovieService(MovieService movieService, CacheManager cacheManager) {
+        this(movieService, cacheManager, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * 创建缓存装饰器
+     * 
+     * @param movieService 被装饰的电影服务
+     * @param cacheManager 缓存管理器
+     * @param executor 被装饰的服务没有实现异步接口时，执行阻塞调用的线程池
+     */
+    public CachedMovieService(MovieService movieService, CacheManager cacheManager, Executor executor) {
         this.movieService = movieService;
+        this.asyncMovieService = AsyncMovieServiceAdapter.of(movieService, executor);
         this.cacheManager = cacheManager;
     }
 
@@ -32,11 +53,28 @@ public class CachedMovieService implements MovieService {
             return cachedResult;
         }
         
+        // 检查负缓存
+        CacheManager.NegativeType negative = cacheManager.getNegativeSearchResult(baseUrl, keyword);
+        if (negative != null) {
+            logger.info("Negative cache hit (" + negative + ") for search: " + keyword + " on " + baseUrl);
+            return negativeResult(negative, baseUrl, new ArrayList<>());
+        }
+        
         // 从实际服务获取
-        List<Movie> result = movieService.searchMovies(baseUrl, keyword);
+        List<Movie> result;
+        try {
+            result = movieService.searchMovies(baseUrl, keyword);
+        } catch (RuntimeException e) {
+            if (!isLocallyAborted(e)) {
+                cacheManager.cacheNegativeSearchResult(baseUrl, keyword, CacheManager.NegativeType.FAILED);
+            }
+            throw e;
+        }
         
-        // 缓存结果
-        if (result != null) {
+        // 缓存结果，空结果只写入负缓存
+        if (result == null || result.isEmpty()) {
+            cacheManager.cacheNegativeSearchResult(baseUrl, keyword, CacheManager.NegativeType.EMPTY);
+        } else {
             cacheManager.cacheSearchResults(baseUrl, keyword, result);
         }
         
@@ -52,11 +90,28 @@ public class CachedMovieService implements MovieService {
             return cachedResult;
         }
         
+        // 检查负缓存
+        CacheManager.NegativeType negative = cacheManager.getNegativeEpisodes(baseUrl, playUrl);
+        if (negative != null) {
+            logger.info("Negative cache hit (" + negative + ") for episodes: " + playUrl + " on " + baseUrl);
+            return negativeResult(negative, baseUrl, new ArrayList<>());
+        }
+        
         // 从实际服务获取
-        List<Movie.Episode> result = movieService.getEpisodes(baseUrl, playUrl);
+        List<Movie.Episode> result;
+        try {
+            result = movieService.getEpisodes(baseUrl, playUrl);
+        } catch (RuntimeException e) {
+            if (!isLocallyAborted(e)) {
+                cacheManager.cacheNegativeEpisodes(baseUrl, playUrl, CacheManager.NegativeType.FAILED);
+            }
+            throw e;
+        }
         
-        // 缓存结果
-        if (result != null) {
+        // 缓存结果，空结果只写入负缓存
+        if (result == null || result.isEmpty()) {
+            cacheManager.cacheNegativeEpisodes(baseUrl, playUrl, CacheManager.NegativeType.EMPTY);
+        } else {
             cacheManager.cacheEpisodes(baseUrl, playUrl, result);
         }
         
@@ -72,16 +127,160 @@ public class CachedMovieService implements MovieService {
             return cachedResult;
         }
         
+        // 检查负缓存
+        CacheManager.NegativeType negative = cacheManager.getNegativeM3u8Url(baseUrl, episodeUrl);
+        if (negative != null) {
+            logger.info("Negative cache hit (" + negative + ") for m3u8: " + episodeUrl + " on " + baseUrl);
+            return negativeResult(negative, baseUrl, "");
+        }
+        
         // 从实际服务获取
-        String result = movieService.getM3u8Url(baseUrl, episodeUrl);
+        String result;
+        try {
+            result = movieService.getM3u8Url(baseUrl, episodeUrl);
+        } catch (RuntimeException e) {
+            if (!isLocallyAborted(e)) {
+                cacheManager.cacheNegativeM3u8Url(baseUrl, episodeUrl, CacheManager.NegativeType.FAILED);
+            }
+            throw e;
+        }
         
-        // 缓存结果
-        if (result != null && !result.isEmpty()) {
+        // 缓存结果，空结果只写入负缓存
+        if (result == null || result.isEmpty()) {
+            cacheManager.cacheNegativeM3u8Url(baseUrl, episodeUrl, CacheManager.NegativeType.EMPTY);
+        } else {
             cacheManager.cacheM3u8Url(baseUrl, episodeUrl, result);
         }
         
         return result;
     }
+    
+    @Override
+    public CompletableFuture<List<Movie>> searchMoviesAsync(String baseUrl, String keyword) {
+        // 缓存和负缓存在调用线程中直接读取
+        List<Movie> cachedResult = cacheManager.getCachedSearchResults(baseUrl, keyword);
+        if (cachedResult != null) {
+            logger.info("Cache hit for search: " + keyword + " on " + baseUrl);
+            return CompletableFuture.completedFuture(cachedResult);
+        }
+        
+        CacheManager.NegativeType negative = cacheManager.getNegativeSearchResult(baseUrl, keyword);
+        if (negative != null) {
+            logger.info("Negative cache hit (" + negative + ") for search: " + keyword + " on " + baseUrl);
+            return negativeFuture(negative, baseUrl, new ArrayList<>());
+        }
+        
+        // 从实际服务获取，完成时在整理阶段去重字符串并写入缓存，不占用解析线程
+        CompletableFuture<List<Movie>> source = asyncMovieService.searchMoviesAsync(baseUrl, keyword);
+        return CancellationScope.propagateCancellation(source.whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                if (!isLocallyAborted(error)) {
+                    cacheManager.cacheNegativeSearchResult(baseUrl, keyword, CacheManager.NegativeType.FAILED);
+                }
+            } else if (result == null || result.isEmpty()) {
+                cacheManager.cacheNegativeSearchResult(baseUrl, keyword, CacheManager.NegativeType.EMPTY);
+            } else {
+                cacheManager.cacheSearchResults(baseUrl, keyword, result);
+            }
+        }, Pipeline.normalize()), source);
+    }
+
+    @Override
+    public CompletableFuture<List<Movie.Episode>> getEpisodesAsync(String baseUrl, String playUrl) {
+        List<Movie.Episode> cachedResult = cacheManager.getCachedEpisodes(baseUrl, playUrl);
+        if (cachedResult != null) {
+            logger.info("Cache hit for episodes: " + playUrl + " on " + baseUrl);
+            return CompletableFuture.completedFuture(cachedResult);
+        }
+        
+        CacheManager.NegativeType negative = cacheManager.getNegativeEpisodes(baseUrl, playUrl);
+        if (negative != null) {
+            logger.info("Negative cache hit (" + negative + ") for episodes: " + playUrl + " on " + baseUrl);
+            return negativeFuture(negative, baseUrl, new ArrayList<>());
+        }
+        
+        CompletableFuture<List<Movie.Episode>> source = asyncMovieService.getEpisodesAsync(baseUrl, playUrl);
+        return CancellationScope.propagateCancellation(source.whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                if (!isLocallyAborted(error)) {
+                    cacheManager.cacheNegativeEpisodes(baseUrl, playUrl, CacheManager.NegativeType.FAILED);
+                }
+            } else if (result == null || result.isEmpty()) {
+                cacheManager.cacheNegativeEpisodes(baseUrl, playUrl, CacheManager.NegativeType.EMPTY);
+            } else {
+                cacheManager.cacheEpisodes(baseUrl, playUrl, result);
+            }
+        }, Pipeline.normalize()), source);
+    }
+
+    @Override
+    public CompletableFuture<String> getM3u8UrlAsync(String baseUrl, String episodeUrl) {
+        String cachedResult = cacheManager.getCachedM3u8Url(baseUrl, episodeUrl);
+        if (cachedResult != null && !cachedResult.isEmpty()) {
+            logger.info("Cache hit for m3u8: " + episodeUrl + " on " + baseUrl);
+            return CompletableFuture.completedFuture(cachedResult);
+        }
+        
+        CacheManager.NegativeType negative = cacheManager.getNegativeM3u8Url(baseUrl, episodeUrl);
+        if (negative != null) {
+            logger.info("Negative cache hit (" + negative + ") for m3u8: " + episodeUrl + " on " + baseUrl);
+            return negativeFuture(negative, baseUrl, "");
+        }
+        
+        CompletableFuture<String> source = asyncMovieService.getM3u8UrlAsync(baseUrl, episodeUrl);
+        return CancellationScope.propagateCancellation(source.whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                if (!isLocallyAborted(error)) {
+                    cacheManager.cacheNegativeM3u8Url(baseUrl, episodeUrl, CacheManager.NegativeType.FAILED);
+                }
+            } else if (result == null || result.isEmpty()) {
+                cacheManager.cacheNegativeM3u8Url(baseUrl, episodeUrl, CacheManager.NegativeType.EMPTY);
+            } else {
+                cacheManager.cacheM3u8Url(baseUrl, episodeUrl, result);
+            }
+        }, Pipeline.normalize()), source);
+    }
+    
+    /**
+     * 根据负缓存类型生成异步结果
+     * 
+     * @param negative 负缓存类型
+     * @param baseUrl 基础URL
+     * @param emptyValue 空值
+     * @return 以空值完成或以异常完成的Future
+     */
+    private <T> CompletableFuture<T> negativeFuture(CacheManager.NegativeType negative, String baseUrl, T emptyValue) {
+        try {
+            return CompletableFuture.completedFuture(negativeResult(negative, baseUrl, emptyValue));
+        } catch (DataSourceException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * 调用方取消的请求和因主机限速排队超时而没有发出的请求不是数据源失败，不写入负缓存
+     */
+    private static boolean isLocallyAborted(Throwable error) {
+        Throwable cause = BlockingMovieServiceAdapter.unwrap(error);
+        return cause instanceof CancellationException || cause instanceof RejectedExecutionException;
+    }
+    
+    /**
+     * 根据负缓存类型生成结果
+     * 
+     * 空结果直接返回空值；失败结果抛出异常，与实际请求失败时调用方看到的行为一致
+     * 
+     * @param negative 负缓存类型
+     * @param baseUrl 基础URL
+     * @param emptyValue 空值
+     * @return 空值
+     */
+    private <T> T negativeResult(CacheManager.NegativeType negative, String baseUrl, T emptyValue) {
+        if (negative == CacheManager.NegativeType.FAILED) {
+            throw new DataSourceException("Data source recently failed, skipping request: " + baseUrl);
+        }
+        return emptyValue;
+    }
 
     @Override
     public MovieService getMovieServiceByDatasource(String datasourceId) {
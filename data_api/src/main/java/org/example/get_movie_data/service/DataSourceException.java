@@ -0,0 +1,21 @@
+package org.example.get_movie_data.service;
+
+/**
+ * 数据源异常
+ * 
+ * 数据源实现在上游请求失败（网络错误、非200响应、无法解析的响应等）时抛出此异常，
+ * 用于和"数据源正常响应但没有结果"区分开，缓存层据此决定负缓存的类型。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class DataSourceException extends RuntimeException {
+
+    public DataSourceException(String message) {
+        super(message);
+    }
+
+    public DataSourceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.get_movie_data.service;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 堆内存压力监控器
+ *
+ * 订阅GC通知，只根据回收了老年代的GC（老年代GC、完整GC或并发回收周期）之后老年代的占用比例调整CacheManager内存缓存的容量：
+ * 超过高水位时缩小容量（多余条目从内存中淘汰，仍可从文件缓存读回），低于低水位时逐步恢复容量。
+ * 年轻代GC之后老年代中还有没回收的垃圾，它的占用不能反映存活的数据量，因此被忽略；GC前的使用阈值同理不使用。
+ * 每次GC只产生一次判断，两次调整之间至少间隔冷却时间，短暂的高峰不会让容量连续减半。
+ *
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class HeapPressureMonitor implements NotificationListener {
+    private static final Logger logger = Logger.getLogger(HeapPressureMonitor.class.getName());
+
+    private final CacheManager cacheManager;
+
+    // 高水位和低水位（老年代占用比例）
+    private final double highThreshold;
+    private final double lowThreshold;
+
+    // 压力下内存缓存最少保留的条目数
+    private final int minEntries;
+
+    // 两次调整容量之间的最短间隔（纳秒）
+    private final long cooldownNanos;
+
+    // 上一次调整容量的时间（System.nanoTime），只在GC通知线程上访问
+    private long lastAdjustNanos;
+    private boolean adjusted;
+
+    // 被监控的老年代内存池
+    private final MemoryPoolMXBean oldGenPool;
+
+    // 已注册监听器的通知源，用于关闭时注销
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    /**
+     * 创建堆内存压力监控器
+     *
+     * @param cacheManager 缓存管理器
+     * @param highThreshold 高水位，例如0.75
+     * @param lowThreshold 低水位，例如0.5
+     * @param minEntries 内存缓存最少保留的条目数
+     * @param cooldownMillis 两次调整容量之间的最短间隔（毫秒）
+     */
+    public HeapPressureMonitor(CacheManager cacheManager, double highThreshold, double lowThreshold, int minEntries,
+                               long cooldownMillis) {
+        this.cacheManager = cacheManager;
+        this.highThreshold = highThreshold;
+        this.lowThreshold = Math.min(lowThreshold, highThreshold);
+        this.minEntries = Math.max(1, minEntries);
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, cooldownMillis));
+        this.oldGenPool = findOldGenPool();
+    }
+
+    /**
+     * 查找老年代内存池
+     *
+     * 优先选择名称中包含Old/Tenured的堆内存池，只考虑有回收后使用量的内存池
+     *
+     * @return 老年代内存池，如果没有则返回null
+     */
+    private static MemoryPoolMXBean findOldGenPool() {
+        MemoryPoolMXBean fallback = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) {
+                continue;
+            }
+            String name = pool.getName();
+            if (name.contains("Old") || name.contains("Tenured")) {
+                return pool;
+            }
+            if (fallback == null) {
+                fallback = pool;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * 设置阈值并注册通知监听器
+     */
+    public void start() {
+        if (oldGenPool == null) {
+            logger.warning("No old generation memory pool found, heap-pressure-adaptive cache sizing disabled");
+            return;
+        }
+
+        long max = getPoolMax(oldGenPool);
+        if (max <= 0) {
+            logger.warning("Old generation pool " + oldGenPool.getName() + " has no max size, heap-pressure-adaptive cache sizing disabled");
+            return;
+        }
+
+        // GC通知由各个GarbageCollectorMXBean发出，每次GC一条，是唯一的判断来源
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gcBean;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+
+        logger.info("Heap pressure monitor started on pool " + oldGenPool.getName()
+                + ", high threshold: " + highThreshold + ", low threshold: " + lowThreshold
+                + ", cooldown: " + TimeUnit.NANOSECONDS.toMillis(cooldownNanos) + "ms");
+    }
+
+    /**
+     * 注销所有通知监听器
+     */
+    public void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // 忽略未注册的监听器
+            }
+        }
+        emitters.clear();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        try {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            if (!collectsOldGen(info)) {
+                return;
+            }
+            MemoryUsage afterGc = info.getGcInfo().getMemoryUsageAfterGc().get(oldGenPool.getName());
+            if (afterGc != null) {
+                onOccupancy(ratio(afterGc));
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Error handling memory notification: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 判断GC是否回收了老年代
+     *
+     * 年轻代GC（包括G1的混合GC）的动作是"end of minor GC"；ZGC和Shenandoah的Pauses收集器只报告周期中的停顿，
+     * 它们的Cycles收集器才代表一次完整的回收周期
+     *
+     * @param info GC通知
+     * @return true表示回收后的老年代占用可以反映存活的数据量
+     */
+    private static boolean collectsOldGen(GarbageCollectionNotificationInfo info) {
+        String action = info.getGcAction();
+        String name = info.getGcName();
+        if (action != null && action.contains("minor")) {
+            return false;
+        }
+        return name == null || !name.endsWith("Pauses");
+    }
+
+    /**
+     * 根据老年代占用比例调整缓存容量，距上一次调整不足冷却时间时不调整
+     *
+     * @param occupancy 老年代占用比例
+     */
+    private void onOccupancy(double occupancy) {
+        long now = System.nanoTime();
+        if (adjusted && now - lastAdjustNanos < cooldownNanos) {
+            return;
+        }
+        int capacity = cacheManager.getMemoryCapacity();
+        if (occupancy >= highThreshold) {
+            // 超过高水位，容量减半
+            int newCapacity = Math.max(minEntries, capacity / 2);
+            if (newCapacity < capacity) {
+                logger.warning("Old generation occupancy " + Math.round(occupancy * 100) + "%, shrinking memory cache");
+                cacheManager.setMemoryCapacity(newCapacity);
+                adjusted = true;
+                lastAdjustNanos = now;
+            }
+        } else if (occupancy <= lowThreshold && capacity < cacheManager.getMemoryMaxEntries()) {
+            // 低于低水位，容量逐步翻倍恢复
+            logger.info("Old generation occupancy " + Math.round(occupancy * 100) + "%, growing memory cache");
+            cacheManager.setMemoryCapacity(capacity * 2);
+            adjusted = true;
+            lastAdjustNanos = now;
+        }
+    }
+
+    private double ratio(MemoryUsage usage) {
+        long max = getPoolMax(oldGenPool);
+        return max > 0 ? (double) usage.getUsed() / max : 0;
+    }
+
+    private static long getPoolMax(MemoryPoolMXBean pool) {
+        MemoryUsage usage = pool.getUsage();
+        return usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+    }
+}
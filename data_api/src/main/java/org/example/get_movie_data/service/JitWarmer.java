@@ -0,0 +1,364 @@
+package org.example.get_movie_data.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Metrics;
+import org.example.get_movie_data.config.RateLimitInterceptor;
+import org.example.get_movie_data.util.HttpClientUtil;
+import org.example.get_movie_data.util.UpstreamFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JIT预热
+ *
+ * 应用启动完成后，通过本机HTTP接口重放一组固定的请求（classpath:warmup/requests.json），
+ * 上游请求由录制的响应（classpath:warmup/fixtures.json）应答，不访问网络，
+ * 请求完整经过控制器、数据源管理器、缓存、HTTP客户端和解析器，使这些路径在接收真实流量前被JIT编译。
+ * 每轮重放若干次，连续几轮JIT编译时间的增量都很小时认为编译已经稳定。
+ * 作为健康检查指示器加入readiness探针：预热结束前探针返回OUT_OF_SERVICE。
+ * 预热关键词和录制响应中的地址都带有每个进程随机生成的标记，结束后只删除由这些关键词和地址产生的缓存，
+ * 预热期间真实请求写入的缓存不受影响。
+ *
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+@Component
+public class JitWarmer implements HealthIndicator {
+    private static final Logger logger = Logger.getLogger(JitWarmer.class.getName());
+
+    // 预热请求使用的关键词前缀，只有包含它的上游请求由录制的响应应答；每个进程随机生成，客户端无法猜到
+    private final String marker = "warmup" + UUID.randomUUID().toString().replace("-", "");
+
+    // 从搜索响应中取出电影ID
+    private static final Pattern MOVIE_ID = Pattern.compile("\"movieId\"\\s*:\\s*\"([^\"]+)\"");
+
+    @Autowired
+    private MovieServiceManager movieServiceManager;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment environment;
+
+    // 是否启用JIT预热
+    @Value("${movie.warmup.jit.enabled:false}")
+    private boolean enabled;
+
+    // 每轮重放全部请求的次数
+    @Value("${movie.warmup.jit.iterations-per-round:50}")
+    private int iterationsPerRound;
+
+    // 一轮的JIT编译时间增量不超过该值（毫秒）时该轮计为稳定
+    @Value("${movie.warmup.jit.stable-compile-millis:20}")
+    private long stableCompileMillis;
+
+    // 连续稳定多少轮后结束预热
+    @Value("${movie.warmup.jit.stable-rounds:2}")
+    private int stableRounds;
+
+    // 预热最长时间（毫秒），超过后即使编译没有稳定也结束预热
+    @Value("${movie.warmup.jit.max-duration:60000}")
+    private long maxDurationMillis;
+
+    @Value("${movie.rate-limit.api-key-header:X-Api-Key}")
+    private String apiKeyHeader;
+
+    @Value("${server.servlet.context-path:}")
+    private String contextPath;
+
+    // 预热是否已结束
+    private volatile boolean finished;
+
+    // 预热结果，用于健康检查
+    private volatile int rounds;
+    private volatile int requestCount;
+    private volatile long durationMillis;
+    private volatile boolean steady;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            finished = true;
+        }
+    }
+
+    /**
+     * 应用启动完成后在后台开始预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null) {
+            logger.warning("Local server port unknown, skipping JIT warm-up");
+            finished = true;
+            return;
+        }
+        Thread thread = new Thread(() -> warmUp("http://localhost:" + port + contextPath), "jit-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 重放请求直到JIT编译稳定或达到最长时间
+     *
+     * @param baseUrl 本机接口地址
+     */
+    private void warmUp(String baseUrl) {
+        long start = System.currentTimeMillis();
+        UpstreamFixtures fixtures = HttpClientUtil.getFixtures();
+        CacheManager cacheManager = movieServiceManager.getCacheManager();
+
+        // 预热请求不受限流，写入的缓存键被记录下来，结束后删除其中属于预热的键
+        String apiKey = "warmup-" + UUID.randomUUID();
+        Set<String> touchedKeys = ConcurrentHashMap.newKeySet();
+        Set<String> warmupKeys = ConcurrentHashMap.newKeySet();
+        Consumer<String> listener = touchedKeys::add;
+        rateLimiter.setExempt(RateLimitInterceptor.apiKeyClient(apiKey), true);
+        cacheManager.addInvalidationListener(listener);
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean timing = jit != null && jit.isCompilationTimeMonitoringSupported();
+        if (!timing) {
+            logger.warning("JIT compilation time not available, warm-up runs " + stableRounds + " rounds");
+        }
+        try {
+            List<Map<String, String>> requests = loadFixtures(fixtures);
+            fixtures.setMarker(marker);
+            HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            int iteration = 0;
+            int stable = 0;
+            while (System.currentTimeMillis() - start < maxDurationMillis) {
+                long compileBefore = timing ? jit.getTotalCompilationTime() : 0;
+                for (int i = 0; i < iterationsPerRound; i++) {
+                    replay(http, baseUrl, apiKey, requests, marker + iteration++, warmupKeys);
+                }
+                rounds++;
+                long compileDelta = timing ? jit.getTotalCompilationTime() - compileBefore : 0;
+                stable = compileDelta <= stableCompileMillis ? stable + 1 : 0;
+                if (stable >= stableRounds) {
+                    steady = true;
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("JIT warm-up failed: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            fixtures.clear();
+            rateLimiter.setExempt(RateLimitInterceptor.apiKeyClient(apiKey), false);
+            cacheManager.removeInvalidationListener(listener);
+            int removed = 0;
+            for (String key : touchedKeys) {
+                if (isWarmupKey(key, warmupKeys)) {
+                    cacheManager.remove(key);
+                    removed++;
+                }
+            }
+            logger.info("Removed " + removed + " warm-up cache entries, kept " + (touchedKeys.size() - removed) + " others");
+
+            durationMillis = System.currentTimeMillis() - start;
+            Metrics.timer("movie.warmup.jit.duration", "steady", String.valueOf(steady))
+                    .record(durationMillis, TimeUnit.MILLISECONDS);
+            logger.info("JIT warm-up " + (steady ? "reached steady state" : "stopped before steady state")
+                    + " after " + durationMillis + "ms, " + rounds + " rounds, " + requestCount + " requests");
+            finished = true;
+        }
+    }
+
+    /**
+     * 注册录制的上游响应并读取要重放的请求
+     *
+     * @param fixtures 录制的上游响应
+     * @return 要重放的请求
+     */
+    private List<Map<String, String>> loadFixtures(UpstreamFixtures fixtures) throws IOException {
+        TypeReference<List<Map<String, String>>> type = new TypeReference<List<Map<String, String>>>() {};
+        for (Map<String, String> fixture : readResource("warmup/fixtures.json", type)) {
+            String body;
+            try (InputStream in = new ClassPathResource(fixture.get("resource")).getInputStream()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            fixtures.register(fixture.get("urlPrefix"), body, fixture.get("contentType"));
+        }
+        return readResource("warmup/requests.json", type);
+    }
+
+    private <T> T readResource(String path, TypeReference<T> type) throws IOException {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return objectMapper.readValue(in, type);
+        }
+    }
+
+    /**
+     * 按顺序重放一组请求
+     *
+     * 路径和请求体中的{{keyword}}替换为本次的关键词，{{movieId}}替换为本次搜索结果中的第一个电影ID
+     *
+     * @param http HTTP客户端
+     * @param baseUrl 本机接口地址
+     * @param apiKey 预热使用的API Key
+     * @param requests 要重放的请求
+     * @param keyword 关键词
+     * @param warmupKeys 收集由响应中的录制数据产生的缓存键
+     */
+    private void replay(HttpClient http, String baseUrl, String apiKey, List<Map<String, String>> requests, String keyword,
+                        Set<String> warmupKeys) throws IOException, InterruptedException {
+        String movieId = null;
+        String movieBaseUrl = null;
+        for (Map<String, String> request : requests) {
+            String path = request.get("path");
+            if (path.contains("{{movieId}}")) {
+                if (movieId == null) {
+                    continue;
+                }
+                path = path.replace("{{movieId}}", URLEncoder.encode(movieId, StandardCharsets.UTF_8));
+            }
+            path = path.replace("{{keyword}}", keyword);
+
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(10))
+                    .header(apiKeyHeader, apiKey);
+            if ("POST".equalsIgnoreCase(request.get("method"))) {
+                String body = request.getOrDefault("body", "").replace("{{keyword}}", keyword);
+                builder.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body));
+            } else {
+                builder.GET();
+            }
+            HttpResponse<String> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            requestCount++;
+
+            if (movieId == null) {
+                Matcher matcher = MOVIE_ID.matcher(response.body());
+                if (matcher.find()) {
+                    movieId = matcher.group(1);
+                }
+            }
+            String found = collectKeys(response.body(), movieId, movieBaseUrl, warmupKeys);
+            if (movieBaseUrl == null) {
+                movieBaseUrl = found;
+            }
+        }
+    }
+
+    /**
+     * 从响应中收集由录制数据产生的电影、剧集和m3u8缓存键
+     *
+     * 只收集播放地址和剧集地址带有标记的条目，真实数据源返回的电影不会被收集
+     *
+     * @param body 响应体
+     * @param movieId 本次重放使用的电影ID，可以为null
+     * @param movieBaseUrl 该电影的基础URL，用于没有基础URL的剧集列表响应，可以为null
+     * @param warmupKeys 收集到的缓存键
+     * @return 本次重放使用的电影的基础URL，没有找到时返回null
+     */
+    private String collectKeys(String body, String movieId, String movieBaseUrl, Set<String> warmupKeys) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+        String[] found = new String[1];
+        collectKeys(root, movieBaseUrl, movieId, found, warmupKeys);
+        return found[0];
+    }
+
+    private void collectKeys(JsonNode node, String baseUrl, String movieId, String[] found, Set<String> warmupKeys) {
+        if (node == null || !(node.isObject() || node.isArray())) {
+            return;
+        }
+        if (node.isObject()) {
+            String nodeBaseUrl = node.path("baseUrl").asText(null);
+            if (nodeBaseUrl != null) {
+                baseUrl = nodeBaseUrl;
+            }
+            String playUrl = node.path("playUrl").asText(null);
+            String id = node.path("movieId").asText(null);
+            if (baseUrl != null && playUrl != null && playUrl.contains(marker)) {
+                warmupKeys.add(CacheManager.episodesKey(baseUrl, playUrl));
+                if (id != null) {
+                    warmupKeys.add(CacheManager.movieKey(id));
+                    if (id.equals(movieId)) {
+                        found[0] = baseUrl;
+                    }
+                }
+            }
+            String episodeUrl = node.path("episodeUrl").asText(null);
+            if (baseUrl != null && episodeUrl != null && episodeUrl.contains(marker)) {
+                warmupKeys.add(CacheManager.m3u8Key(baseUrl, episodeUrl));
+            }
+        }
+        Iterator<JsonNode> children = node.elements();
+        while (children.hasNext()) {
+            collectKeys(children.next(), baseUrl, movieId, found, warmupKeys);
+        }
+    }
+
+    /**
+     * 判断缓存键是否由预热产生
+     *
+     * 搜索缓存键包含关键词本身，关键词带有标记；其他缓存键必须是从录制数据中收集到的
+     *
+     * @param key 缓存键
+     * @param warmupKeys 从录制数据中收集到的缓存键
+     * @return true表示由预热产生
+     */
+    private boolean isWarmupKey(String key, Set<String> warmupKeys) {
+        return warmupKeys.contains(key) || (key.startsWith("search_") && key.contains(marker));
+    }
+
+    @Override
+    public Health health() {
+        if (!enabled) {
+            return Health.up().withDetail("enabled", false).build();
+        }
+        Health.Builder builder = finished ? Health.up() : Health.outOfService();
+        return builder.withDetail("rounds", rounds)
+                .withDetail("requests", requestCount)
+                .withDetail("durationMillis", finished ? durationMillis : 0)
+                .withDetail("steady", steady)
+                .build();
+    }
+}
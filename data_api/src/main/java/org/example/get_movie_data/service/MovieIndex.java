@@ -0,0 +1,97 @@
+package org.example.get_movie_data.service;
+
+import org.example.get_movie_data.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 电影ID索引
+ * 
+ * 搜索时为每部电影分配由"基础URL + 播放地址"计算的短ID，并把ID到电影的映射保存在CacheManager中。
+ * 客户端之后可以只用ID请求剧集和M3U8地址，不必回传完整的播放地址（bfzy的播放地址包含全部剧集）。
+ * 索引只保存查找需要的基础URL和播放地址，剧集列表在需要时通过数据源（及其缓存）获取。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class MovieIndex {
+    
+    // ID使用SHA-256摘要的前9个字节，Base64URL编码后为12个字符
+    private static final int ID_BYTES = 9;
+    
+    private final CacheManager cacheManager;
+    
+    public MovieIndex(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+    
+    /**
+     * 计算电影ID
+     * 
+     * 相同数据源的相同播放地址总是得到相同的ID
+     * 
+     * @param baseUrl 基础URL
+     * @param playUrl 播放地址
+     * @return 电影ID
+     */
+    public static String movieId(String baseUrl, String playUrl) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(baseUrl.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(playUrl.getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest();
+            byte[] id = new byte[ID_BYTES];
+            System.arraycopy(hash, 0, id, 0, ID_BYTES);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * 为搜索结果分配电影ID并登记到索引中
+     * 
+     * 已在内存中登记的电影不会重复登记；索引条目是只包含ID、基础URL和播放地址的副本，
+     * 不持有搜索结果中的简介和剧集列表
+     * 
+     * @param baseUrl 基础URL
+     * @param movies 电影列表
+     */
+    public void register(String baseUrl, List<Movie> movies) {
+        if (baseUrl == null || movies == null) {
+            return;
+        }
+        for (Movie movie : movies) {
+            if (movie == null || movie.getPlayUrl() == null) {
+                continue;
+            }
+            String id = movieId(baseUrl, movie.getPlayUrl());
+            movie.setMovieId(id);
+            if (cacheManager.getExpireTime(CacheManager.movieKey(id)) == 0) {
+                Movie entry = new Movie();
+                entry.setMovieId(id);
+                entry.setBaseUrl(baseUrl);
+                entry.setPlayUrl(movie.getPlayUrl());
+                cacheManager.cacheMovie(id, entry);
+            }
+        }
+    }
+    
+    /**
+     * 根据电影ID查找电影
+     * 
+     * @param movieId 电影ID
+     * @return 电影，如果索引中没有或已过期则返回null
+     */
+    public Movie find(String movieId) {
+        if (movieId == null || movieId.isEmpty()) {
+            return null;
+        }
+        return cacheManager.getCachedMovie(movieId);
+    }
+}
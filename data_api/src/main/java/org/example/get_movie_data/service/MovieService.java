@@ -7,6 +7,8 @@ import java.util.List;
  * 电影服务接口
  * 
  * 定义了获取电影数据的核心方法，所有数据源实现都需要实现此接口。
+ * 上游请求失败时应抛出{@link DataSourceException}，而不是返回空结果，
+ * 以便缓存层区分"没有结果"和"请求失败"。
  * 
  * @author get_movie_data team
  * @version 1.0.0
@@ -2,9 +2,21 @@ package org.example.get_movie_data.service;
 
 import org.example.get_movie_data.model.Movie;
 import org.example.get_movie_data.util.AnnotationScanner;
+import org.example.get_movie_data.util.HttpClientProfile;
+import org.example.get_movie_data.util.HttpClientUtil;
+import org.example.get_movie_data.util.HttpResponseCache;
+import org.example.get_movie_data.util.Pipeline;
+import org.example.get_movie_data.util.PipelineStage;
+import org.example.get_movie_data.util.PriorityExecutor;
+import org.example.get_movie_data.util.PriorityScheduler;
+import org.example.get_movie_data.util.RetryPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.net.URI;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 
 import jakarta.annotation.PostConstruct;
@@ -15,6 +27,10 @@ import java.util.HashMap;
 import java.util.Set;
 import java.util.logging.Logger;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 电影服务管理器
@@ -34,15 +50,172 @@ public class MovieServiceManager {
     // URL到数据源ID的映射
     private final Map<String, String> urlToDatasourceMap = new ConcurrentHashMap<>();
     
+    // 搜索结果中已包含剧集信息的数据源ID
+    private final Set<String> episodesInSearchDatasources = ConcurrentHashMap.newKeySet();
+    
     // 缓存管理器
     private CacheManager cacheManager;
     
+    // 空结果负缓存过期时间（毫秒）
+    @Value("${movie.cache.negative.empty-ttl:300000}")
+    private long negativeEmptyTtl;
+    
+    // 失败结果负缓存过期时间（毫秒）
+    @Value("${movie.cache.negative.failure-ttl:30000}")
+    private long negativeFailureTtl;
+    
+    // 负缓存最大条目数
+    @Value("${movie.cache.negative.max-entries:10000}")
+    private int negativeMaxEntries;
+    
+    // 内存缓存最大条目数
+    @Value("${movie.cache.memory.max-entries:10000}")
+    private int memoryMaxEntries;
+    
+    // 是否根据堆内存压力自动调整内存缓存容量
+    @Value("${movie.cache.heap.adaptive:true}")
+    private boolean heapAdaptive;
+    
+    // 老年代占用比例的高水位和低水位
+    @Value("${movie.cache.heap.high-threshold:0.75}")
+    private double heapHighThreshold;
+    
+    @Value("${movie.cache.heap.low-threshold:0.5}")
+    private double heapLowThreshold;
+    
+    // 两次根据堆内存压力调整内存缓存容量之间的最短间隔（毫秒）
+    @Value("${movie.cache.heap.cooldown:60000}")
+    private long heapCooldownMillis;
+    
+    // 堆内存压力下内存缓存最少保留的条目数
+    @Value("${movie.cache.memory.min-entries:500}")
+    private int memoryMinEntries;
+    
+    // 堆内存压力监控器
+    private HeapPressureMonitor heapPressureMonitor;
+    
+    // 电影ID索引
+    private MovieIndex movieIndex;
+    
+    // 上游请求线程数
+    @Value("${movie.upstream.threads:16}")
+    private int upstreamThreads;
+    
+    // 是否在虚拟线程上执行上游请求，需要JDK 21及以上运行环境，默认跟随Tomcat的虚拟线程配置
+    @Value("${movie.upstream.virtual-threads:${spring.threads.virtual.enabled:false}}")
+    private boolean upstreamVirtualThreads;
+    
+    // 共享的上游请求线程池，所有向数据源发起的并发请求都在这里执行
+    private ExecutorService upstreamExecutor;
+    
+    // 同时进行的上游HTTP请求数上限
+    @Value("${movie.upstream.max-concurrent-requests:32}")
+    private int upstreamMaxConcurrentRequests;
+    
+    // 为播放等交互请求保留的上游名额
+    @Value("${movie.upstream.interactive-reserve:4}")
+    private int upstreamInteractiveReserve;
+    
+    // 批量请求和预取最多占用的上游名额
+    @Value("${movie.upstream.background-limit:8}")
+    private int upstreamBackgroundLimit;
+    
+    // 按优先级分配上游名额的调度器
+    private PriorityScheduler upstreamScheduler;
+    
+    // 已注册的HTTP客户端配置名称
+    private final Set<String> httpProfiles = ConcurrentHashMap.newKeySet();
+    
+    // 所有数据源请求的上游主机的源地址，用于启动预热
+    private final Set<String> upstreamOrigins = ConcurrentHashMap.newKeySet();
+    
+    @Autowired
+    private Environment environment;
+    
+    // 上游请求最多尝试次数（包括第一次请求）
+    @Value("${movie.upstream.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+    
+    // 第一次重试的退避时间上限和退避时间的最大值（毫秒）
+    @Value("${movie.upstream.retry.base-delay:200}")
+    private long retryBaseDelay;
+    
+    @Value("${movie.upstream.retry.max-delay:2000}")
+    private long retryMaxDelay;
+    
+    // 每个主机的重试量与请求量的比例上限，以及最多可以累积的重试次数
+    @Value("${movie.upstream.retry.budget-ratio:0.1}")
+    private double retryBudgetRatio;
+    
+    @Value("${movie.upstream.retry.budget-reserve:10}")
+    private int retryBudgetReserve;
+    
+    // 是否缓存上游响应并发送条件请求
+    @Value("${movie.http.cache.enabled:true}")
+    private boolean httpCacheEnabled;
+    
+    // 上游响应缓存的目录和最多缓存的响应数量
+    @Value("${movie.http.cache.dir:cache/http}")
+    private String httpCacheDir;
+    
+    @Value("${movie.http.cache.max-entries:2000}")
+    private int httpCacheMaxEntries;
+    
+    // 上游响应体大小上限（字节）
+    @Value("${movie.http.max-response-size:8388608}")
+    private long httpMaxResponseSize;
+    
+    // DNS解析结果的有效期（毫秒）
+    @Value("${movie.upstream.dns.ttl:300000}")
+    private long dnsTtl;
+    
+    // 解析阶段线程数，0表示与CPU核数相同
+    @Value("${movie.pipeline.parse.threads:0}")
+    private int pipelineParseThreads;
+    
+    // 整理阶段线程数
+    @Value("${movie.pipeline.normalize.threads:2}")
+    private int pipelineNormalizeThreads;
+    
+    // 每个阶段的队列容量，队列满时由上一阶段的线程执行任务
+    @Value("${movie.pipeline.queue-capacity:256}")
+    private int pipelineQueueCapacity;
+    
+    // 数据源请求的解析阶段和整理阶段
+    private PipelineStage parseStage;
+    private PipelineStage normalizeStage;
+    
     @PostConstruct
     public void init() {
         logger.info("Initializing MovieServiceManager...");
         
         // 初始化缓存管理器
-        cacheManager = new CacheManager();
+        cacheManager = new CacheManager(negativeEmptyTtl, negativeFailureTtl, memoryMaxEntries, negativeMaxEntries);
+        movieIndex = new MovieIndex(cacheManager);
+        upstreamExecutor = createUpstreamExecutor();
+        upstreamScheduler = new PriorityScheduler(
+                upstreamMaxConcurrentRequests, upstreamInteractiveReserve, upstreamBackgroundLimit);
+        HttpClientUtil.setScheduler(upstreamScheduler);
+        HttpClientUtil.configureRetry(new RetryPolicy(retryMaxAttempts, retryBaseDelay, retryMaxDelay),
+                retryBudgetRatio, retryBudgetReserve);
+        httpProfiles.add("default");
+        registerHttpProfile("default");
+        HttpClientUtil.setMaxResponseSize(httpMaxResponseSize);
+        HttpClientUtil.setDnsTtl(dnsTtl);
+        int parseThreads = pipelineParseThreads > 0 ? pipelineParseThreads : Runtime.getRuntime().availableProcessors();
+        parseStage = new PipelineStage("parse", parseThreads, pipelineQueueCapacity);
+        normalizeStage = new PipelineStage("normalize", Math.max(1, pipelineNormalizeThreads), pipelineQueueCapacity);
+        Pipeline.configure(parseStage, normalizeStage);
+        if (httpCacheEnabled) {
+            HttpClientUtil.setResponseCache(new HttpResponseCache(Paths.get(httpCacheDir), httpCacheMaxEntries));
+        }
+        
+        // 根据堆内存压力调整内存缓存容量
+        if (heapAdaptive) {
+            heapPressureMonitor = new HeapPressureMonitor(cacheManager, heapHighThreshold, heapLowThreshold, memoryMinEntries,
+                    heapCooldownMillis);
+            heapPressureMonitor.start();
+        }
         
         // 扫描并注册所有带@DataSource注解的服务
         registerAnnotatedServices();
@@ -50,6 +223,116 @@ public class MovieServiceManager {
         logger.info("MovieServiceManager initialized with " + serviceCache.size() + " services");
     }
     
+    /**
+     * 创建上游请求线程池
+     * 
+     * 启用虚拟线程且运行在JDK 21及以上时，每个上游请求使用一个虚拟线程，等待响应时不占用平台线程；
+     * 否则使用固定大小的平台线程池，线程忙碌时排队的任务按优先级执行。项目以Java 17为编译目标，虚拟线程执行器通过反射创建。
+     * 
+     * @return 上游请求线程池
+     */
+    private ExecutorService createUpstreamExecutor() {
+        if (upstreamVirtualThreads) {
+            if (Runtime.version().feature() >= 21) {
+                try {
+                    ExecutorService executor = (ExecutorService) Executors.class
+                            .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                    logger.info("Upstream requests run on virtual threads");
+                    return executor;
+                } catch (ReflectiveOperationException e) {
+                    logger.warning("Failed to create virtual thread executor, falling back to platform threads: " + e.getMessage());
+                }
+            } else {
+                logger.warning("Virtual threads require JDK 21 or later, running on JDK " + Runtime.version().feature()
+                        + ", falling back to platform threads");
+            }
+        }
+        
+        logger.info("Upstream requests run on " + upstreamThreads + " platform threads");
+        return new PriorityExecutor(upstreamThreads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+            
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "upstream-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+    
+    /**
+     * 按数据源注解配置上游主机的HTTP客户端和请求速率
+     * 
+     * 基础URL的主机和注解中列出的其他主机使用相同的配置，并记录它们的源地址用于启动预热
+     * 
+     * @param annotation 数据源注解
+     */
+    private void configureUpstreamHosts(org.example.get_movie_data.annotation.DataSource annotation) {
+        List<String> hosts = new ArrayList<>();
+        String scheme = "https";
+        if (!annotation.baseUrl().isEmpty()) {
+            URI baseUri = URI.create(annotation.baseUrl());
+            if (baseUri.getHost() != null) {
+                hosts.add(baseUri.getHost());
+                scheme = baseUri.getScheme();
+                upstreamOrigins.add(scheme + "://" + baseUri.getAuthority());
+            }
+        }
+        // 其他主机可以带协议，没有协议时使用基础URL的协议
+        for (String entry : annotation.hosts()) {
+            URI uri = entry.contains("://") ? URI.create(entry) : null;
+            if (uri != null && uri.getHost() != null) {
+                hosts.add(uri.getHost());
+                upstreamOrigins.add(uri.getScheme() + "://" + uri.getAuthority());
+            } else {
+                hosts.add(entry);
+                upstreamOrigins.add(scheme + "://" + entry);
+            }
+        }
+        
+        // 使用非默认HTTP客户端配置的主机，第一次用到配置时创建对应的客户端
+        String profileName = annotation.httpProfile();
+        if (!profileName.isEmpty() && !"default".equals(profileName)) {
+            if (httpProfiles.add(profileName)) {
+                registerHttpProfile(profileName);
+            }
+            for (String host : hosts) {
+                HttpClientUtil.assignProfile(host, profileName);
+            }
+            logger.info("Datasource " + annotation.id() + " uses HTTP client profile " + profileName + " for hosts " + hosts);
+        }
+        
+        if (annotation.requestsPerSecond() > 0) {
+            for (String host : hosts) {
+                HttpClientUtil.configureHost(host, annotation.requestsPerSecond(), annotation.burst(), annotation.maxWaitMillis());
+                logger.info("Rate limiting host " + host + " for datasource " + annotation.id() + ": "
+                        + annotation.requestsPerSecond() + " requests/s, burst " + annotation.burst());
+            }
+        }
+    }
+    
+    /**
+     * 读取HTTP客户端配置并注册
+     * 
+     * 从内置配置开始，使用movie.http.profiles.{name}.*属性覆盖各项参数
+     * 
+     * @param name 配置名称
+     */
+    private void registerHttpProfile(String name) {
+        HttpClientProfile profile = HttpClientProfile.builtIn(name);
+        String prefix = "movie.http.profiles." + name + ".";
+        profile.setConnectTimeoutMillis(environment.getProperty(prefix + "connect-timeout", Long.class, profile.getConnectTimeoutMillis()));
+        profile.setReadTimeoutMillis(environment.getProperty(prefix + "read-timeout", Long.class, profile.getReadTimeoutMillis()));
+        profile.setMaxIdleConnections(environment.getProperty(prefix + "max-idle-connections", Integer.class, profile.getMaxIdleConnections()));
+        profile.setKeepAliveMillis(environment.getProperty(prefix + "keep-alive", Long.class, profile.getKeepAliveMillis()));
+        profile.setMaxRequests(environment.getProperty(prefix + "max-requests", Integer.class, profile.getMaxRequests()));
+        profile.setMaxRequestsPerHost(environment.getProperty(prefix + "max-requests-per-host", Integer.class, profile.getMaxRequestsPerHost()));
+        profile.setHttp2(environment.getProperty(prefix + "http2", Boolean.class, profile.isHttp2()));
+        HttpClientUtil.registerProfile(profile);
+        logger.info("Registered HTTP client profile " + profile);
+    }
+    
     /**
      * 扫描并注册所有带@DataSource注解的服务
      */
@@ -69,7 +352,11 @@ public class MovieServiceManager {
                     if (annotation != null) {
                         try {
                             MovieService service = (MovieService) clazz.getDeclaredConstructor().newInstance();
-                            serviceCache.put(annotation.id(), new CachedMovieService(service, cacheManager));
+                            serviceCache.put(annotation.id(), new CachedMovieService(service, cacheManager, upstreamExecutor));
+                            if (annotation.episodesInSearch()) {
+                                episodesInSearchDatasources.add(annotation.id());
+                            }
+                            configureUpstreamHosts(annotation);
                             
                             // 如果有baseUrl，则建立URL到数据源ID的映射
                             if (!annotation.baseUrl().isEmpty()) {
@@ -90,7 +377,7 @@ public class MovieServiceManager {
             }
             
             // 添加默认服务
-            serviceCache.put("default", new CachedMovieService(new DefaultMovieService(), cacheManager));
+            serviceCache.put("default", new CachedMovieService(new DefaultMovieService(), cacheManager, upstreamExecutor));
         } catch (Exception e) {
             logger.severe("Error registering annotated services: " + e.getMessage());
         }
@@ -103,6 +390,27 @@ public class MovieServiceManager {
     public void destroy() {
         logger.info("Destroying MovieServiceManager...");
         
+        // 注销堆内存压力监控
+        if (heapPressureMonitor != null) {
+            heapPressureMonitor.stop();
+        }
+        
+        // 关闭上游请求线程池
+        if (upstreamExecutor != null) {
+            upstreamExecutor.shutdownNow();
+        }
+        HttpClientUtil.setScheduler(null);
+        HttpClientUtil.setResponseCache(null);
+        
+        // 关闭流水线阶段，之后的任务在提交线程上执行
+        Pipeline.configure(null, null);
+        if (parseStage != null) {
+            parseStage.shutdown();
+        }
+        if (normalizeStage != null) {
+            normalizeStage.shutdown();
+        }
+        
         // 清理缓存管理器资源
         if (cacheManager != null) {
             cacheManager.shutdown();
@@ -128,6 +436,18 @@ public class MovieServiceManager {
         return getMovieServiceById(datasourceId);
     }
     
+    /**
+     * 根据基础URL获取对应的异步电影服务
+     * 
+     * 注册的服务都被缓存装饰器包装，同时实现了异步接口；没有实现异步接口的数据源在共享的上游请求线程池中执行
+     * 
+     * @param baseUrl 基础URL
+     * @return 对应的异步电影服务
+     */
+    public AsyncMovieService getAsyncMovieServiceByBaseUrl(String baseUrl) {
+        return AsyncMovieServiceAdapter.of(getMovieServiceByBaseUrl(baseUrl), upstreamExecutor);
+    }
+    
     /**
      * 根据数据源ID获取对应的电影服务实例
      * 
@@ -291,6 +611,24 @@ public class MovieServiceManager {
         }
     }
     
+    /**
+     * 获取缓存管理器
+     * 
+     * @return 缓存管理器
+     */
+    public CacheManager getCacheManager() {
+        return cacheManager;
+    }
+    
+    /**
+     * 获取电影ID索引
+     * 
+     * @return 电影ID索引
+     */
+    public MovieIndex getMovieIndex() {
+        return movieIndex;
+    }
+    
     /**
      * 获取所有已注册的服务ID列表
      * 
@@ -316,6 +654,43 @@ public class MovieServiceManager {
         return null;
     }
     
+    /**
+     * 获取共享的上游请求线程池
+     * 
+     * @return 上游请求线程池
+     */
+    public ExecutorService getUpstreamExecutor() {
+        return upstreamExecutor;
+    }
+    
+    /**
+     * 获取上游请求调度器
+     * 
+     * @return 上游请求调度器
+     */
+    public PriorityScheduler getUpstreamScheduler() {
+        return upstreamScheduler;
+    }
+    
+    /**
+     * 获取所有数据源请求的上游主机的源地址
+     * 
+     * @return 源地址列表，例如https://example.com
+     */
+    public List<String> getUpstreamOrigins() {
+        return new ArrayList<>(upstreamOrigins);
+    }
+    
+    /**
+     * 判断数据源的搜索结果中是否已包含剧集信息
+     * 
+     * @param baseUrl 基础URL
+     * @return true表示获取剧集不需要额外请求上游
+     */
+    public boolean hasEpisodesInSearch(String baseUrl) {
+        return baseUrl != null && episodesInSearchDatasources.contains(mapBaseUrlToDatasourceId(baseUrl));
+    }
+    
     /**
      * 获取所有可用的基础URL
      * 
@@ -0,0 +1,24 @@
+package org.example.get_movie_data.service;
+
+/**
+ * 过载异常
+ * 
+ * 服务过载时，只能使用缓存的请求没有命中缓存时抛出此异常，控制器据此返回503并附带Retry-After。
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+public class OverloadedException extends RuntimeException {
+
+    // 建议客户端重试前等待的秒数
+    private final long retryAfterSeconds;
+
+    public OverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.get_movie_data.service;
+
+import io.micrometer.core.instrument.Metrics;
+import org.example.get_movie_data.util.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 按客户端限流
+ * 
+ * 每个客户端（API Key或IP）一个令牌桶，各接口按{@link org.example.get_movie_data.annotation.RateLimitCost}消耗令牌。
+ * 支持两种模式：
+ * <ul>
+ *   <li>fixed：每个客户端使用固定的速率</li>
+ *   <li>fair-share：总速率在最近活跃的客户端之间平分，只有一个客户端时可以使用全部速率，
+ *       有多个客户端时请求频繁的客户端被限制在自己的份额内，请求较少的客户端不受影响</li>
+ * </ul>
+ * 
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+@Component
+public class RateLimiter {
+    private static final Logger logger = Logger.getLogger(RateLimiter.class.getName());
+    
+    // 最近多长时间内消耗过令牌的客户端计为活跃客户端（毫秒）
+    private static final long ACTIVE_WINDOW_MILLIS = 10000;
+    
+    // 令牌桶空闲多长时间后被移除（毫秒）
+    private static final long IDLE_EVICT_MILLIS = 300000;
+    
+    // 令牌桶数量超过上限的该比例时，移除所有不活跃的令牌桶
+    private static final double EVICT_ACTIVE_RATIO = 0.9;
+    
+    // 是否启用限流
+    @Value("${movie.rate-limit.enabled:true}")
+    private boolean enabled;
+    
+    // 限流模式：fixed或fair-share
+    @Value("${movie.rate-limit.mode:fixed}")
+    private String mode;
+    
+    // fixed模式下每个客户端每秒补充的令牌数
+    @Value("${movie.rate-limit.rate:10}")
+    private double rate;
+    
+    // fair-share模式下所有客户端每秒补充的令牌总数
+    @Value("${movie.rate-limit.global-rate:100}")
+    private double globalRate;
+    
+    // 每个客户端的桶容量（允许的突发令牌数），需要不小于单次调用的最大消耗
+    @Value("${movie.rate-limit.burst:30}")
+    private int burst;
+    
+    // 令牌桶数量上限，达到上限后新客户端共用一个令牌桶，直到空闲的令牌桶被移除
+    @Value("${movie.rate-limit.max-clients:10000}")
+    private int maxClients;
+    
+    // 客户端标识 -> 令牌桶
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    
+    // 令牌桶数量达到上限后新客户端共用的令牌桶
+    private final TokenBucket overflowBucket = new TokenBucket();
+    
+    // 不限流的客户端标识，例如启动预热时的本地请求
+    private final Set<String> exemptClients = ConcurrentHashMap.newKeySet();
+    
+    // 最近活跃的客户端数，由定时任务更新
+    private volatile int activeClients = 1;
+    
+    private boolean fairShare;
+    
+    @PostConstruct
+    public void init() {
+        fairShare = "fair-share".equalsIgnoreCase(mode);
+        Metrics.gauge("movie.ratelimit.clients", buckets, Map::size);
+        logger.info("Rate limiting " + (enabled ? "enabled" : "disabled") + ", mode: " + (fairShare ? "fair-share" : "fixed")
+                + ", rate: " + (fairShare ? globalRate + " shared" : rate + " per client") + ", burst: " + burst);
+    }
+    
+    /**
+     * 为客户端申请令牌
+     * 
+     * @param clientKey 客户端标识
+     * @param cost 需要的令牌数
+     * @return 0表示允许，否则为建议客户端等待的秒数
+     */
+    public long tryAcquire(String clientKey, int cost) {
+        if (!enabled || cost <= 0 || exemptClients.contains(clientKey)) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.get(clientKey);
+        if (bucket == null) {
+            if (buckets.size() < maxClients) {
+                bucket = buckets.computeIfAbsent(clientKey, k -> new TokenBucket());
+            } else {
+                Metrics.counter("movie.ratelimit.overflow").increment();
+                bucket = overflowBucket;
+            }
+        }
+        long waitNanos = bucket.tryAcquire(cost, currentRate(), burst, System.nanoTime());
+        if (waitNanos == 0) {
+            return 0;
+        }
+        Metrics.counter("movie.ratelimit.rejected", "mode", fairShare ? "fair-share" : "fixed").increment();
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+    
+    /**
+     * 设置客户端是否不受限流
+     * 
+     * @param clientKey 客户端标识
+     * @param exempt true表示不限流
+     */
+    public void setExempt(String clientKey, boolean exempt) {
+        if (exempt) {
+            exemptClients.add(clientKey);
+        } else {
+            exemptClients.remove(clientKey);
+        }
+    }
+    
+    /**
+     * 判断客户端是否不受限流
+     * 
+     * @param clientKey 客户端标识
+     * @return true表示不限流
+     */
+    public boolean isExempt(String clientKey) {
+        return exemptClients.contains(clientKey);
+    }
+    
+    /**
+     * 当前每个客户端的速率
+     */
+    private double currentRate() {
+        return Math.max(0.01, fairShare ? globalRate / activeClients : rate);
+    }
+    
+    /**
+     * 统计活跃客户端数并移除长时间空闲的令牌桶
+     * 
+     * 令牌桶数量接近上限时，移除所有不活跃的令牌桶，为新客户端腾出位置
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        long activeSince = now - TimeUnit.MILLISECONDS.toNanos(ACTIVE_WINDOW_MILLIS);
+        long evictBefore = buckets.size() >= maxClients * EVICT_ACTIVE_RATIO
+                ? activeSince : now - TimeUnit.MILLISECONDS.toNanos(IDLE_EVICT_MILLIS);
+        int active = 0;
+        Iterator<TokenBucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            TokenBucket bucket = iterator.next();
+            if (bucket.isIdleSince(evictBefore)) {
+                iterator.remove();
+            } else if (!bucket.isIdleSince(activeSince)) {
+                active++;
+            }
+        }
+        activeClients = Math.max(1, active);
+    }
+}
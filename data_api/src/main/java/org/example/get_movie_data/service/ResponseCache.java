@@ -0,0 +1,304 @@
+package org.example.get_movie_data.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.get_movie_data.util.TextUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 序列化响应缓存
+ *
+ * 按"接口 + 规范化请求参数"缓存最终的JSON字节和预先压缩的gzip字节，命中时控制器直接写出字节，
+ * 不再遍历对象图序列化，也不需要Tomcat再次压缩。
+ * 每个响应记录它所依赖的CacheManager缓存键，依赖的数据被替换或过期时响应随之失效，
+ * 响应的过期时间也不会晚于依赖数据中最早的过期时间。
+ * 每个响应带有根据内容计算的强ETag，供GET接口处理条件请求。
+ *
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+@Component
+public class ResponseCache {
+    private static final Logger logger = Logger.getLogger(ResponseCache.class.getName());
+
+    // 小于该大小的响应不预先压缩（字节）
+    private static final int GZIP_MIN_SIZE = 1024;
+
+    // 最多缓存的响应数量
+    @Value("${movie.response-cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Autowired
+    private MovieServiceManager movieServiceManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 响应键 -> 缓存的响应
+    private final ConcurrentHashMap<String, CachedResponse> responses = new ConcurrentHashMap<>();
+
+    // CacheManager缓存键 -> 依赖它的响应键
+    private final ConcurrentHashMap<String, Set<String>> dependents = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        movieServiceManager.getCacheManager().addInvalidationListener(this::invalidate);
+    }
+
+    /**
+     * 生成响应键
+     *
+     * @param endpoint 接口名称
+     * @param parts 规范化的请求参数，超长参数会被替换为摘要
+     * @return 响应键
+     */
+    public static String key(String endpoint, String... parts) {
+        StringBuilder builder = new StringBuilder(endpoint);
+        for (String part : parts) {
+            builder.append('\n').append(part == null ? "" : CacheManager.compactKeyPart(part));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 获取缓存的响应
+     *
+     * @param key 响应键
+     * @return 缓存的响应，如果没有缓存或已过期则返回null
+     */
+    public CachedResponse get(String key) {
+        CachedResponse response = responses.get(key);
+        if (response == null) {
+            return null;
+        }
+        if (response.isExpired()) {
+            remove(key, response);
+            return null;
+        }
+        return response;
+    }
+
+    /**
+     * 序列化响应并在依赖数据都有效时缓存
+     *
+     * 依赖数据不在内存缓存中（例如数据源请求超时没有产生缓存）时只返回序列化结果，不缓存
+     *
+     * @param key 响应键
+     * @param body 响应对象
+     * @param dependencies 响应依赖的CacheManager缓存键
+     * @return 序列化后的响应
+     * @throws JsonProcessingException 序列化失败
+     */
+    public CachedResponse put(String key, Object body, List<String> dependencies) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        byte[] gzip = json.length >= GZIP_MIN_SIZE ? gzip(json) : null;
+
+        // 响应的过期时间取依赖数据中最早的过期时间
+        CacheManager cacheManager = movieServiceManager.getCacheManager();
+        long expireTime = dependencies.isEmpty() ? 0 : Long.MAX_VALUE;
+        for (String dependency : dependencies) {
+            expireTime = Math.min(expireTime, cacheManager.getExpireTime(dependency));
+        }
+
+        CachedResponse response = new CachedResponse(json, gzip, expireTime, dependencies);
+        if (response.isExpired()) {
+            return response;
+        }
+
+        // 先登记依赖关系，再写入响应，避免写入过程中错过失效通知
+        for (String dependency : dependencies) {
+            dependents.computeIfAbsent(dependency, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        CachedResponse previous = responses.put(key, response);
+        if (previous != null) {
+            unregisterDependencies(key, previous, response);
+        }
+
+        if (responses.size() > maxEntries) {
+            trim();
+        }
+        return response;
+    }
+
+    /**
+     * 使依赖指定缓存键的所有响应失效
+     *
+     * @param cacheKey CacheManager缓存键
+     */
+    public void invalidate(String cacheKey) {
+        Set<String> keys = dependents.remove(cacheKey);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            CachedResponse response = responses.get(key);
+            if (response != null) {
+                remove(key, response);
+            }
+        }
+    }
+
+    /**
+     * 移除响应及其依赖登记
+     */
+    private void remove(String key, CachedResponse response) {
+        if (responses.remove(key, response)) {
+            unregisterDependencies(key, response, null);
+        }
+    }
+
+    /**
+     * 移除旧响应的依赖登记，仍被新响应依赖的缓存键保留
+     */
+    private void unregisterDependencies(String key, CachedResponse response, CachedResponse replacement) {
+        for (String dependency : response.getDependencies()) {
+            if (replacement != null && replacement.getDependencies().contains(dependency)) {
+                continue;
+            }
+            dependents.computeIfPresent(dependency, (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * 淘汰过期响应，仍然超出上限时淘汰最早创建的响应，直到上限的90%
+     */
+    private void trim() {
+        for (Map.Entry<String, CachedResponse> entry : responses.entrySet()) {
+            if (entry.getValue().isExpired()) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        int targetSize = maxEntries - maxEntries / 10;
+        int excess = responses.size() - targetSize;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<String, CachedResponse>> entries = new ArrayList<>(responses.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().getCreateTime()));
+        for (int i = 0; i < excess && i < entries.size(); i++) {
+            remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    /**
+     * 获取缓存的响应数量
+     *
+     * @return 响应数量
+     */
+    public int size() {
+        return responses.size();
+    }
+
+    /**
+     * 根据响应内容计算强ETag的值（不含引号）
+     * 
+     * @param data JSON字节
+     * @return SHA-256摘要前16字节的十六进制字符串
+     */
+    private static String etag(byte[] data) {
+        return TextUtil.hex(TextUtil.sha256(data), 16);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(data);
+        } catch (IOException e) {
+            logger.warning("Error compressing response: " + e.getMessage());
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 缓存的响应
+     */
+    public static class CachedResponse {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final long expireTime;
+        private final long createTime;
+        private final List<String> dependencies;
+
+        public CachedResponse(byte[] json, byte[] gzip, long expireTime, List<String> dependencies) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag(json);
+            this.expireTime = expireTime;
+            this.createTime = System.currentTimeMillis();
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * 获取JSON字节
+         *
+         * @return JSON字节
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * 获取gzip压缩后的JSON字节
+         *
+         * @return 压缩后的字节，响应较小时没有预先压缩，返回null
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * 获取内容的ETag值（不含引号），内容相同的响应ETag相同
+         *
+         * @return ETag值
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getExpireTime() {
+            return expireTime;
+        }
+
+        /**
+         * 获取剩余有效时间
+         *
+         * @return 剩余有效秒数，已过期或未被缓存时返回0
+         */
+        public long getRemainingSeconds() {
+            long remaining = expireTime - System.currentTimeMillis();
+            return remaining > 0 ? remaining / 1000 : 0;
+        }
+
+        public long getCreateTime() {
+            return createTime;
+        }
+
+        public List<String> getDependencies() {
+            return dependencies;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() > expireTime;
+        }
+    }
+}
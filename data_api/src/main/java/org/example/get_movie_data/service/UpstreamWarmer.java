@@ -0,0 +1,112 @@
+package org.example.get_movie_data.service;
+
+import org.example.get_movie_data.util.HttpClientUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * 上游主机预热
+ *
+ * 启动时对所有数据源的上游主机（基础URL和@DataSource.hosts中的主机）解析DNS并建立保持连接，
+ * 之后定期重复，使DNS缓存和连接池中的连接保持有效。
+ * 作为健康检查指示器加入readiness探针：首次预热完成（或超时）之前探针返回OUT_OF_SERVICE，
+ * 流量不会在第一次请求还需要DNS解析、TCP连接和TLS握手时到达。个别主机预热失败不影响就绪。
+ *
+ * @author get_movie_data team
+ * @version 1.0.0
+ */
+@Component
+public class UpstreamWarmer implements HealthIndicator {
+    private static final Logger logger = Logger.getLogger(UpstreamWarmer.class.getName());
+
+    @Autowired
+    private MovieServiceManager movieServiceManager;
+
+    // 是否启用预热
+    @Value("${movie.upstream.warmup.enabled:true}")
+    private boolean enabled;
+
+    // 首次预热最多等待的时间（毫秒），超时后不再阻止就绪
+    @Value("${movie.upstream.warmup.timeout:30000}")
+    private long timeoutMillis;
+
+    // 首次预热是否已完成
+    private volatile boolean warmedUp;
+
+    // 源地址 -> 最近一次预热是否成功
+    private final Map<String, Boolean> results = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            warmedUp = true;
+            return;
+        }
+        // 在后台预热，不阻塞应用启动的其他步骤
+        Thread thread = new Thread(() -> {
+            warmUpAll();
+            warmedUp = true;
+        }, "upstream-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 定期重复预热，在连接空闲超时和DNS缓存过期之前刷新它们
+     */
+    @Scheduled(fixedDelayString = "${movie.upstream.warmup.interval:60000}", initialDelayString = "${movie.upstream.warmup.interval:60000}")
+    public void keepWarm() {
+        if (enabled && warmedUp) {
+            warmUpAll();
+        }
+    }
+
+    /**
+     * 并行预热所有上游主机
+     */
+    private void warmUpAll() {
+        List<String> origins = movieServiceManager.getUpstreamOrigins();
+        long start = System.currentTimeMillis();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[origins.size()];
+        for (int i = 0; i < origins.size(); i++) {
+            String origin = origins.get(i);
+            futures[i] = CompletableFuture.supplyAsync(() -> HttpClientUtil.warmUp(origin), movieServiceManager.getUpstreamExecutor())
+                    .thenAccept(success -> results.put(origin, success));
+        }
+        try {
+            CompletableFuture.allOf(futures).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warning("Upstream warm-up did not finish within " + timeoutMillis + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warning("Upstream warm-up failed: " + e.getCause());
+        }
+        if (!warmedUp) {
+            long warm = results.values().stream().filter(Boolean::booleanValue).count();
+            logger.info("Warmed up " + warm + "/" + origins.size() + " upstream hosts in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = warmedUp ? Health.up() : Health.outOfService();
+        return builder.withDetail("hosts", new TreeMap<>(results)).build();
+    }
+}
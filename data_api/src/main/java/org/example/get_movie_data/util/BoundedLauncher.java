@@ -0,0 +1,97 @@
+package org.example.get_movie_data.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 以有限的并发数发起一组异步任务
+ *
+ * 一次请求可能包含上百个上游调用（整季剧集、批量关键词），全部同时发起会占满共享的上游线程池和名额，
+ * 让交互请求排队。任务按顺序发起，同时进行的任务不超过上限，一个任务完成后才发起下一个。
+ * 后发起的任务仍使用调用线程的上游请求优先级和截止时间，而不是完成上一个任务的线程的。
+ */
+public class BoundedLauncher {
+
+    private BoundedLauncher() {
+    }
+
+    /**
+     * 发起任务
+     *
+     * 返回的Future在对应任务完成时完成；还没有发起的任务的Future被取消后不再发起，
+     * 已经发起的任务的Future被取消时同时取消任务
+     *
+     * @param tasks 发起任务的函数，按顺序调用
+     * @param maxInFlight 同时进行的任务数上限
+     * @return 与tasks顺序一致的结果Future
+     */
+    public static <T> List<CompletableFuture<T>> launch(List<Supplier<CompletableFuture<T>>> tasks, int maxInFlight) {
+        List<CompletableFuture<T>> results = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+        Launcher<T> launcher = new Launcher<>(tasks, results, RequestPriority.current(), Deadline.current());
+        int initial = Math.min(Math.max(1, maxInFlight), tasks.size());
+        for (int i = 0; i < initial; i++) {
+            launcher.launchNext();
+        }
+        return results;
+    }
+
+    private static class Launcher<T> {
+        private final List<Supplier<CompletableFuture<T>>> tasks;
+        private final List<CompletableFuture<T>> results;
+        private final RequestPriority priority;
+        private final Deadline deadline;
+        private final AtomicInteger next = new AtomicInteger();
+
+        Launcher(List<Supplier<CompletableFuture<T>>> tasks, List<CompletableFuture<T>> results,
+                 RequestPriority priority, Deadline deadline) {
+            this.tasks = tasks;
+            this.results = results;
+            this.priority = priority;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 发起下一个没有被取消的任务
+         */
+        void launchNext() {
+            int index;
+            while ((index = next.getAndIncrement()) < tasks.size()) {
+                CompletableFuture<T> result = results.get(index);
+                if (result.isDone()) {
+                    continue;
+                }
+                CompletableFuture<T> source = start(tasks.get(index));
+                result.whenComplete((value, error) -> {
+                    if (result.isCancelled()) {
+                        source.cancel(true);
+                    }
+                });
+                source.whenComplete((value, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                    launchNext();
+                });
+                return;
+            }
+        }
+
+        private CompletableFuture<T> start(Supplier<CompletableFuture<T>> task) {
+            Supplier<CompletableFuture<T>> prioritized = () -> priority.call(task);
+            try {
+                CompletableFuture<T> source = deadline != null ? deadline.call(prioritized) : prioritized.get();
+                return source != null ? source : CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    }
+}
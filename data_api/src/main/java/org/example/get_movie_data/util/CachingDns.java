@@ -0,0 +1,85 @@
+package org.example.get_movie_data.util;
+
+import okhttp3.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * 带缓存的DNS解析
+ *
+ * 解析结果在有效期内直接返回，不再经过系统解析；过期后重新解析，重新解析失败时继续使用过期的结果，
+ * 避免上游DNS短暂故障导致请求失败。预热时调用refresh提前解析，第一次请求不需要等待DNS。
+ */
+public class CachingDns implements Dns {
+    private static final Logger logger = Logger.getLogger(CachingDns.class.getName());
+
+    // 主机名 -> 解析结果
+    private final ConcurrentHashMap<String, Resolved> cache = new ConcurrentHashMap<>();
+
+    // 解析结果的有效期（毫秒）
+    private volatile long ttlMillis;
+
+    /**
+     * 创建带缓存的DNS解析
+     *
+     * @param ttlMillis 解析结果的有效期（毫秒）
+     */
+    public CachingDns(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        Resolved resolved = cache.get(hostname);
+        if (resolved != null && System.currentTimeMillis() < resolved.expireTime) {
+            return resolved.addresses;
+        }
+        return resolve(hostname, resolved);
+    }
+
+    /**
+     * 重新解析主机名并更新缓存
+     *
+     * @param hostname 主机名
+     * @return 解析结果，解析失败但有过期的结果时返回过期的结果
+     * @throws UnknownHostException 解析失败且没有缓存的结果
+     */
+    public List<InetAddress> refresh(String hostname) throws UnknownHostException {
+        return resolve(hostname, cache.get(hostname));
+    }
+
+    private List<InetAddress> resolve(String hostname, Resolved stale) throws UnknownHostException {
+        try {
+            List<InetAddress> addresses = List.copyOf(Dns.SYSTEM.lookup(hostname));
+            cache.put(hostname, new Resolved(addresses, System.currentTimeMillis() + ttlMillis));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (stale == null) {
+                throw e;
+            }
+            logger.warning("DNS lookup failed for " + hostname + ", using stale addresses: " + e.getMessage());
+            return stale.addresses;
+        }
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 解析结果
+     */
+    private static class Resolved {
+        final List<InetAddress> addresses;
+        final long expireTime;
+
+        Resolved(List<InetAddress> addresses, long expireTime) {
+            this.addresses = addresses;
+            this.expireTime = expireTime;
+        }
+    }
+}
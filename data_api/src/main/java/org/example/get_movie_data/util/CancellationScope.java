@@ -0,0 +1,166 @@
+package org.example.get_movie_data.util;
+
+import okhttp3.Call;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * 取消范围
+ *
+ * 记录一次请求发起的上游Future和OkHttp调用，取消时中止所有仍在进行的上游请求。
+ * 阻塞的数据源方法在{@link #run}中执行时，HttpClientUtil发出的同步请求会自动登记到当前范围，
+ * 取消范围会直接中止对应的HTTP调用，而不是等待它完成。
+ */
+public class CancellationScope {
+
+    private static final ThreadLocal<CancellationScope> CURRENT = new ThreadLocal<>();
+
+    private final Set<Future<?>> futures = ConcurrentHashMap.newKeySet();
+    private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * 获取当前线程所在的取消范围
+     *
+     * @return 取消范围，不在任何范围中时返回null
+     */
+    public static CancellationScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在线程池中执行阻塞任务，返回的Future被取消时中止任务发出的HTTP调用
+     *
+     * 任务继承提交线程的上游请求优先级和截止时间
+     *
+     * @param task 阻塞任务
+     * @param executor 执行任务的线程池
+     * @return 任务结果的Future
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task, Executor executor) {
+        CancellationScope scope = new CancellationScope();
+        RequestPriority priority = RequestPriority.current();
+        Deadline deadline = Deadline.current();
+        Supplier<T> scoped = () -> priority.call(() -> scope.run(task));
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(
+                deadline != null ? () -> deadline.call(scoped) : scoped, executor);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                scope.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 派生的Future被取消时同时取消源Future
+     *
+     * CompletableFuture的取消不会沿thenApply等派生关系向上传递，需要显式传递才能中止源头的上游请求
+     *
+     * @param derived 派生的Future
+     * @param source 源Future
+     * @return 派生的Future
+     */
+    public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<T> derived, Future<?> source) {
+        derived.whenComplete((result, error) -> {
+            if (derived.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return derived;
+    }
+
+    /**
+     * 在当前范围中执行任务
+     *
+     * @param task 任务
+     * @return 任务结果
+     * @throws CancellationException 范围已被取消
+     */
+    public <T> T run(Supplier<T> task) {
+        if (cancelled) {
+            throw new CancellationException("Cancelled before start");
+        }
+        CancellationScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 登记上游Future，完成后自动移除
+     *
+     * @param future 上游Future
+     * @return 同一个Future
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        futures.add(future);
+        future.whenComplete((result, error) -> futures.remove(future));
+        if (cancelled) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    /**
+     * 登记进行中的HTTP调用
+     *
+     * @param call HTTP调用
+     */
+    void register(Call call) {
+        calls.add(call);
+        if (cancelled) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * 移除已结束的HTTP调用
+     *
+     * @param call HTTP调用
+     */
+    void unregister(Call call) {
+        calls.remove(call);
+    }
+
+    /**
+     * 取消范围内所有仍在进行的上游请求，之后登记的请求会被立即取消
+     *
+     * @return 被取消的Future数量
+     */
+    public int cancel() {
+        cancelled = true;
+        int count = 0;
+        for (Future<?> future : futures) {
+            if (future.cancel(true)) {
+                count++;
+            }
+        }
+        for (Call call : calls) {
+            call.cancel();
+        }
+        return count;
+    }
+
+    /**
+     * 范围是否已被取消
+     *
+     * @return true表示已取消
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
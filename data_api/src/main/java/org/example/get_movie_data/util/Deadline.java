@@ -0,0 +1,96 @@
+package org.example.get_movie_data.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 请求的截止时间
+ *
+ * 处理入站请求时由拦截器绑定到当前线程，在上游线程池中执行的任务继承提交时的截止时间。
+ * HttpClientUtil据此判断是否还有时间发起重试。
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    // 截止时间（System.nanoTime时间轴）
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 创建从现在起经过指定时间的截止时间
+     *
+     * @param millis 毫秒数
+     * @return 截止时间
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * 获取当前线程的截止时间
+     *
+     * @return 截止时间，没有设置时返回null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 设置当前线程的截止时间
+     *
+     * @param deadline 截止时间
+     */
+    public static void bind(Deadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    /**
+     * 清除当前线程的截止时间
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 以该截止时间执行任务，结束后恢复之前的截止时间
+     *
+     * @param task 任务
+     * @return 任务结果
+     */
+    public <T> T call(Supplier<T> task) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 获取剩余时间
+     *
+     * @return 剩余毫秒数，已过期时返回0
+     */
+    public long remainingMillis() {
+        long remaining = deadlineNanos - System.nanoTime();
+        return remaining > 0 ? TimeUnit.NANOSECONDS.toMillis(remaining) : 0;
+    }
+
+    /**
+     * 是否已过期
+     *
+     * @return true表示已过期
+     */
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+}
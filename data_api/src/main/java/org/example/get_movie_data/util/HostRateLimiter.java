@@ -0,0 +1,80 @@
+package org.example.get_movie_data.util;
+
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个上游主机的请求限速器
+ *
+ * 以令牌桶控制向同一主机发出请求的速率，允许一定的突发。超出速率的请求按到达顺序预约之后的令牌并等待，
+ * 预计等待时间超过期限的请求直接失败，不占用令牌；等待期间被取消的请求退还预约的令牌。
+ * 各主机的等待时间记录在movie.upstream.host.wait指标中。
+ */
+public class HostRateLimiter {
+
+    private final String host;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final long maxWaitNanos;
+    private final TokenBucket bucket = new TokenBucket();
+
+    /**
+     * 创建限速器
+     *
+     * @param host 主机名
+     * @param requestsPerSecond 每秒最多发出的请求数
+     * @param burst 允许的突发请求数
+     * @param maxWaitMillis 最长等待时间（毫秒）
+     */
+    public HostRateLimiter(String host, double requestsPerSecond, int burst, long maxWaitMillis) {
+        this.host = host;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * 申请发出一个请求
+     *
+     * @return 可以发出请求时完成的Future，在完成前取消时退还预约的令牌；等待时间超过期限时以RejectedExecutionException失败
+     */
+    public CompletableFuture<Void> acquire() {
+        long wait = bucket.reserve(1, requestsPerSecond, burst, System.nanoTime(), maxWaitNanos);
+        if (wait < 0) {
+            Metrics.counter("movie.upstream.host.rejected", "host", host).increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Request queue deadline exceeded for host: " + host));
+        }
+        Metrics.timer("movie.upstream.host.wait", "host", host).record(wait, TimeUnit.NANOSECONDS);
+        if (wait == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        ready.whenComplete((result, error) -> {
+            if (ready.isCancelled()) {
+                bucket.refund(1, requestsPerSecond);
+                Metrics.counter("movie.upstream.host.refunded", "host", host).increment();
+            }
+        });
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> ready.complete(null));
+        return ready;
+    }
+
+    /**
+     * 按上游的要求暂停向该主机发出请求
+     *
+     * 暂停期间到达的请求排在暂停结束之后，预计等待时间超过期限的请求直接失败
+     *
+     * @param millis 暂停的毫秒数
+     */
+    public void pause(long millis) {
+        bucket.pauseUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), requestsPerSecond, burst);
+        Metrics.counter("movie.upstream.host.paused", "host", host).increment();
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.get_movie_data.util;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP客户端配置
+ *
+ * 每个配置对应一个独立的OkHttp客户端，拥有自己的连接池和调度器，数据源通过@DataSource的httpProfile选择。
+ * 慢数据源占满自己的调度器和连接池时不会影响其他数据源，响应快的数据源可以使用更短的超时时间。
+ * 内置default、fast、slow三个配置，各项参数都可以在application.properties中覆盖，也可以定义新的配置。
+ */
+public class HttpClientProfile {
+
+    private final String name;
+
+    // 连接超时和读取超时（毫秒）
+    private long connectTimeoutMillis = 30000;
+    private long readTimeoutMillis = 30000;
+
+    // 连接池最多保留的空闲连接数和空闲连接的保持时间（毫秒）
+    private int maxIdleConnections = 5;
+    private long keepAliveMillis = 300000;
+
+    // 异步请求调度器的总并发数和单个主机的并发数
+    private int maxRequests = 64;
+    private int maxRequestsPerHost = 5;
+
+    // 是否优先使用HTTP/2，上游支持时多个请求复用同一个连接
+    private boolean http2 = true;
+
+    public HttpClientProfile(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 获取内置配置
+     *
+     * @param name 配置名称
+     * @return 内置配置，没有同名内置配置时返回与default相同参数的新配置
+     */
+    public static HttpClientProfile builtIn(String name) {
+        HttpClientProfile profile = new HttpClientProfile(name);
+        if ("fast".equals(name)) {
+            // 响应快的数据源：短超时，更多空闲连接和单主机并发
+            profile.setConnectTimeoutMillis(3000);
+            profile.setReadTimeoutMillis(10000);
+            profile.setMaxIdleConnections(10);
+            profile.setMaxRequestsPerHost(10);
+        } else if ("slow".equals(name)) {
+            // 响应慢的数据源：长超时，限制连接和并发，避免占用过多资源
+            profile.setConnectTimeoutMillis(15000);
+            profile.setReadTimeoutMillis(60000);
+            profile.setMaxIdleConnections(2);
+            profile.setKeepAliveMillis(60000);
+            profile.setMaxRequests(16);
+            profile.setMaxRequestsPerHost(4);
+        }
+        return profile;
+    }
+
+    /**
+     * 按配置创建OkHttp客户端
+     *
+     * @param dns 客户端使用的DNS解析
+     * @param interceptor 应用拦截器，可以为null
+     * @return OkHttp客户端
+     */
+    public OkHttpClient createClient(Dns dns, Interceptor interceptor) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .dns(dns)
+                // HTTP/2需要通过TLS协商，明文连接始终使用HTTP/1.1
+                .protocols(http2 ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.HTTP_1_1));
+        if (interceptor != null) {
+            builder.addInterceptor(interceptor);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return name + "{connectTimeout=" + connectTimeoutMillis + "ms, readTimeout=" + readTimeoutMillis
+                + "ms, maxIdleConnections=" + maxIdleConnections + ", keepAlive=" + keepAliveMillis
+                + "ms, maxRequests=" + maxRequests + ", maxRequestsPerHost=" + maxRequestsPerHost + ", http2=" + http2 + "}";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public long getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public void setReadTimeoutMillis(long readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public void setKeepAliveMillis(long keepAliveMillis) {
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+}
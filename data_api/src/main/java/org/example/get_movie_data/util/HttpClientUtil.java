@@ -1,12 +1,33 @@
 package org.example.get_movie_data.util;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import io.micrometer.core.instrument.Metrics;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -19,11 +40,202 @@ public class HttpClientUtil {
     
     private static final Logger logger = Logger.getLogger(HttpClientUtil.class.getName());
     
-    // 创建OkHttp客户端实例
-    private static final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
+    private static final String DEFAULT_USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+    
+    // 所有OkHttp客户端共享的DNS缓存
+    private static final CachingDns dns = new CachingDns(300000);
+    
+    // 所有OkHttp客户端共享的录制响应，用于不访问网络的预热
+    private static final UpstreamFixtures fixtures = new UpstreamFixtures();
+    
+    // 默认的OkHttp客户端，没有指定配置的主机使用
+    private static volatile OkHttpClient client = HttpClientProfile.builtIn("default").createClient(dns, fixtures);
+    
+    // 配置名称 -> OkHttp客户端
+    private static final ConcurrentHashMap<String, OkHttpClient> profileClients = new ConcurrentHashMap<>();
+    
+    // 主机名 -> 该主机使用的OkHttp客户端
+    private static final ConcurrentHashMap<String, OkHttpClient> hostClients = new ConcurrentHashMap<>();
+    
+    // 按优先级分配上游并发名额的调度器，未设置时不限制
+    private static volatile PriorityScheduler scheduler;
+    
+    // 主机名 -> 请求限速器，没有配置的主机不限速
+    private static final ConcurrentHashMap<String, HostRateLimiter> hostLimiters = new ConcurrentHashMap<>();
+    
+    // 重试策略
+    private static volatile RetryPolicy retryPolicy = new RetryPolicy(3, 200, 2000);
+    
+    // 重试量与请求量的比例上限，以及最多可以累积的重试次数
+    private static volatile double retryBudgetRatio = 0.1;
+    private static volatile int retryBudgetReserve = 10;
+    
+    // 主机名 -> 重试预算
+    private static final ConcurrentHashMap<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+    
+    // 上游响应缓存，未设置时不发送条件请求
+    private static volatile HttpResponseCache responseCache;
+    
+    // 响应体大小上限（字节），超出时请求失败且不重试
+    private static volatile long maxResponseSize = 8L * 1024 * 1024;
+    
+    /**
+     * 设置响应体大小上限
+     * 
+     * @param bytes 最大字节数
+     */
+    public static void setMaxResponseSize(long bytes) {
+        maxResponseSize = bytes;
+    }
+    
+    /**
+     * 设置上游响应缓存
+     * 
+     * @param cache 响应缓存，为null时不缓存上游响应
+     */
+    public static void setResponseCache(HttpResponseCache cache) {
+        responseCache = cache;
+    }
+    
+    /**
+     * 配置重试策略和重试预算
+     * 
+     * @param policy 重试策略
+     * @param budgetRatio 每个主机的重试量与请求量的比例上限
+     * @param budgetReserve 每个主机最多可以累积的重试次数
+     */
+    public static void configureRetry(RetryPolicy policy, double budgetRatio, int budgetReserve) {
+        retryPolicy = policy;
+        retryBudgetRatio = budgetRatio;
+        retryBudgetReserve = budgetReserve;
+        retryBudgets.clear();
+    }
+    
+    /**
+     * 注册HTTP客户端配置，为其创建独立的OkHttp客户端
+     * 
+     * 名为default的配置替换没有指定配置的主机使用的默认客户端
+     * 
+     * @param profile 客户端配置
+     */
+    public static void registerProfile(HttpClientProfile profile) {
+        OkHttpClient profileClient = profile.createClient(dns, fixtures);
+        profileClients.put(profile.getName(), profileClient);
+        if ("default".equals(profile.getName())) {
+            client = profileClient;
+        }
+    }
+    
+    /**
+     * 指定上游主机使用的HTTP客户端配置
+     * 
+     * @param host 主机名
+     * @param profileName 已注册的配置名称
+     * @return 是否指定成功，配置没有注册时返回false
+     */
+    public static boolean assignProfile(String host, String profileName) {
+        OkHttpClient profileClient = profileClients.get(profileName);
+        if (profileClient == null) {
+            return false;
+        }
+        hostClients.put(host, profileClient);
+        return true;
+    }
+    
+    /**
+     * 获取主机使用的OkHttp客户端
+     * 
+     * @param host 主机名
+     * @return 主机指定配置的客户端，没有指定时返回默认客户端
+     */
+    private static OkHttpClient clientFor(String host) {
+        OkHttpClient hostClient = hostClients.get(host);
+        return hostClient != null ? hostClient : client;
+    }
+    
+    /**
+     * 配置上游主机的请求速率
+     * 
+     * @param host 主机名
+     * @param requestsPerSecond 每秒最多发出的请求数，不大于0时取消限速
+     * @param burst 允许的突发请求数
+     * @param maxWaitMillis 请求排队等待的最长时间（毫秒）
+     */
+    public static void configureHost(String host, double requestsPerSecond, int burst, long maxWaitMillis) {
+        if (requestsPerSecond <= 0) {
+            hostLimiters.remove(host);
+        } else {
+            hostLimiters.put(host, new HostRateLimiter(host, requestsPerSecond, burst, maxWaitMillis));
+        }
+    }
+    
+    /**
+     * 设置DNS解析结果的有效期
+     * 
+     * @param ttlMillis 有效期（毫秒）
+     */
+    public static void setDnsTtl(long ttlMillis) {
+        dns.setTtlMillis(ttlMillis);
+    }
+    
+    /**
+     * 获取录制的上游响应
+     * 
+     * 由录制响应应答的请求不经过主机限速，也不写入上游响应缓存
+     * 
+     * @return 录制的上游响应
+     */
+    public static UpstreamFixtures getFixtures() {
+        return fixtures;
+    }
+    
+    /**
+     * 预热上游主机
+     * 
+     * 重新解析主机名并更新DNS缓存，再向主机发送一个HEAD请求，建立的连接保留在主机所用客户端的连接池中，
+     * 之后的请求不需要再等待DNS解析、TCP连接和TLS握手。任何HTTP响应都视为预热成功。
+     * 预热请求不经过主机限速和上游名额，也不重试。
+     * 
+     * @param origin 主机的源地址，例如https://example.com
+     * @return 是否预热成功
+     */
+    public static boolean warmUp(String origin) {
+        HttpUrl url = HttpUrl.parse(origin);
+        if (url == null) {
+            logger.warning("Invalid warm-up origin: " + origin);
+            return false;
+        }
+        String host = url.host();
+        try {
+            dns.refresh(host);
+        } catch (IOException e) {
+            logger.warning("DNS lookup failed during warm-up of " + host + ": " + e.getMessage());
+            return false;
+        }
+        
+        Request request = new Request.Builder()
+                .url(url.newBuilder().encodedPath("/").query(null).build())
+                .head()
+                .addHeader("User-Agent", DEFAULT_USER_AGENT)
+                .build();
+        try {
+            // 只需要建立连接，响应本身直接关闭
+            clientFor(host).newCall(request).execute().close();
+            return true;
+        } catch (IOException e) {
+            logger.warning("Connection warm-up failed for " + origin + ": " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * 设置上游请求调度器
+     * 
+     * @param priorityScheduler 调度器，为null时不限制并发
+     */
+    public static void setScheduler(PriorityScheduler priorityScheduler) {
+        scheduler = priorityScheduler;
+    }
     
     /**
      * 发送GET请求
@@ -38,44 +250,1011 @@ public class HttpClientUtil {
     /**
      * 发送GET请求
      * 
+     * 网络错误、超时和5xx等可重试的失败按重试策略退避后重试，重试受主机的重试预算和当前请求的截止时间限制。
+     * 
      * @param url 请求URL
      * @param userAgent User-Agent头信息
      * @return 响应内容字符串
+     * @throws RejectedExecutionException 上游主机限速，排队时间会超过期限
      */
     public static String sendGetRequest(String url, String userAgent) {
+        return fetch(url, userAgent, null).body;
+    }
+    
+    /**
+     * 发送GET请求并边读边解析响应体
+     * 
+     * 响应体不会先被读成完整的字符串，解析函数直接从网络流中读取，大小受响应体上限限制。
+     * 上游返回304时从缓存的响应体解析，每次调用都返回新的解析结果，调用方可以修改。
+     * 请求失败时以空内容调用解析函数，解析函数抛出的异常原样抛出（IOException被包装为UncheckedIOException）。
+     * 
+     * @param url 请求URL
+     * @param parser 解析函数
+     * @return 解析结果
+     * @throws RejectedExecutionException 上游主机限速，排队时间会超过期限
+     */
+    public static <T> T getStreamed(String url, ResponseParser<T> parser) {
+        return fetch(url, null, parser).value(parser);
+    }
+    
+    /**
+     * 发送GET请求，可以使用响应缓存进行条件请求
+     * 
+     * @param url 请求URL
+     * @param userAgent User-Agent头信息
+     * @param parser 边读边解析响应体的解析函数，为null时读取完整的响应体
+     * @return 响应
+     */
+    private static Fetched fetch(String url, String userAgent, ResponseParser<?> parser) {
+        HttpResponseCache cache = fixtures.matches(url) ? null : responseCache;
+        HttpResponseCache.Entry cached;
+        Request request;
         try {
-            // 构建请求
-            Request.Builder requestBuilder = new Request.Builder()
-                    .url(url)
-                    .addHeader("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-                    .addHeader("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
-                    .addHeader("Connection", "keep-alive");
+            cached = cache != null ? cache.get(url) : null;
+            request = buildGetRequest(url, userAgent, cached);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error sending GET request to: " + url, e);
+            return Fetched.EMPTY;
+        }
+        
+        String host = request.url().host();
+        CancellationScope scope = CancellationScope.current();
+        RequestPriority priority = RequestPriority.current();
+        Deadline deadline = Deadline.current();
+        RetryBudget budget = retryBudget(host);
+        budget.onRequest();
+        
+        for (int attempt = 1; ; attempt++) {
+            // 先按主机限速排队，再按当前线程的优先级等待上游名额，排队期间不占用名额
+            awaitHost(request, scope);
+            if (!awaitPermit(priority, scope)) {
+                throw new CancellationException("Request cancelled: " + url);
+            }
             
-            // 添加User-Agent
-            if (userAgent != null && !userAgent.isEmpty()) {
-                requestBuilder.addHeader("User-Agent", userAgent);
-            } else {
-                requestBuilder.addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
+            // 登记到当前取消范围，范围被取消时直接中止调用
+            Call call = clientFor(host).newCall(request);
+            if (scope != null) {
+                scope.register(call);
             }
             
-            Request request = requestBuilder.build();
-
             // 执行请求
-            try (Response response = client.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
+            String failure;
+            long retryAfter = -1;
+            boolean stale = false;
+            try (Response response = call.execute()) {
+                Fetched fetched = complete(url, response, cache, cached, parser);
+                if (fetched == Fetched.STALE) {
+                    stale = true;
+                    failure = null;
+                } else if (fetched != null) {
+                    return fetched;
+                } else if (!retryPolicy.isRetryableStatus(response.code())) {
                     logger.warning("HTTP request failed with code: " + response.code() + ", url: " + url);
-                    return "";
+                    return Fetched.EMPTY;
+                } else {
+                    failure = "HTTP " + response.code();
+                    retryAfter = retryAfter(request, response);
                 }
-                
-                // 获取响应体
-                ResponseBody responseBody = response.body();
-                if (responseBody != null) {
-                    return responseBody.string();
+            } catch (ResponseTooLargeException e) {
+                logger.warning(e.getMessage() + ", url: " + url);
+                return Fetched.EMPTY;
+            } catch (IOException e) {
+                // 被取消的请求不是上游失败，不能返回空内容让调用方误判为失败
+                if (call.isCanceled()) {
+                    throw new CancellationException("Request cancelled: " + url);
                 }
+                failure = e.toString();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Error sending GET request to: " + url, e);
+                return Fetched.EMPTY;
+            } finally {
+                if (scope != null) {
+                    scope.unregister(call);
+                }
+                releasePermit(priority);
+            }
+            
+            // 缓存的响应体已丢失，条目已被删除，不带条件请求头重新请求一次
+            if (stale) {
+                return fetch(url, userAgent, parser);
             }
+            long delay = retryDelay(request, attempt, budget, deadline, failure, retryAfter);
+            if (delay < 0) {
+                return Fetched.EMPTY;
+            }
+            awaitDelay(delay, scope);
+        }
+    }
+    
+    /**
+     * 异步发送GET请求
+     * 
+     * 请求由OkHttp的调度器执行，调用线程不等待响应。与同步方法一致，请求失败时以空内容完成，可重试的失败按重试策略重试。
+     * 返回的Future被取消时中止HTTP调用。
+     * 
+     * @param url 请求URL
+     * @return 响应内容字符串的Future
+     */
+    public static CompletableFuture<String> sendGetRequestAsync(String url) {
+        return sendGetRequestAsync(url, null);
+    }
+    
+    /**
+     * 异步发送GET请求
+     * 
+     * 请求先按主机限速排队，再按调用线程的优先级等待上游名额，返回的Future被取消时放弃排队或中止HTTP调用。
+     * 主机排队时间会超过期限时，Future以RejectedExecutionException失败。
+     * 
+     * @param url 请求URL
+     * @param userAgent User-Agent头信息
+     * @return 响应内容字符串的Future
+     */
+    public static CompletableFuture<String> sendGetRequestAsync(String url, String userAgent) {
+        CompletableFuture<Fetched> fetched = fetchAsync(url, userAgent, null);
+        return CancellationScope.propagateCancellation(fetched.thenApply(response -> response.body), fetched);
+    }
+    
+    /**
+     * 异步发送GET请求并解析响应体
+     * 
+     * OkHttp的回调线程只把不超过大小上限的响应体读入内存，解析在{@link Pipeline#parse()}阶段进行，
+     * 不占用I/O线程；解析阶段繁忙时由回调线程自己解析，从而放慢读取新响应的速度。
+     * 
+     * @param url 请求URL
+     * @param parser 解析函数
+     * @return 解析结果的Future
+     */
+    public static <T> CompletableFuture<T> getStreamedAsync(String url, ResponseParser<T> parser) {
+        CompletableFuture<Fetched> fetched = fetchAsync(url, null, parser);
+        return CancellationScope.propagateCancellation(
+                fetched.thenApplyAsync(response -> response.resolve().value(parser), Pipeline.parse()), fetched);
+    }
+    
+    /**
+     * 异步发送GET请求，可以使用响应缓存进行条件请求
+     * 
+     * @param url 请求URL
+     * @param userAgent User-Agent头信息
+     * @param parser 边读边解析响应体的解析函数，为null时读取完整的响应体
+     * @return 响应的Future
+     */
+    private static CompletableFuture<Fetched> fetchAsync(String url, String userAgent, ResponseParser<?> parser) {
+        CompletableFuture<Fetched> future = new CompletableFuture<>();
+        HttpResponseCache cache = fixtures.matches(url) ? null : responseCache;
+        HttpResponseCache.Entry cached;
+        Request request;
+        try {
+            cached = cache != null ? cache.get(url) : null;
+            request = buildGetRequest(url, userAgent, cached);
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error sending GET request to: " + url, e);
+            future.complete(Fetched.EMPTY);
+            return future;
+        }
+        
+        AsyncRequest asyncRequest = new AsyncRequest(request, url, userAgent, cache, cached, parser, RequestPriority.current(), Deadline.current(), future);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                asyncRequest.cancel();
+            }
+        });
+        asyncRequest.budget.onRequest();
+        asyncRequest.attempt(1);
+        return future;
+    }
+    
+    /**
+     * 进行中的异步请求，每次尝试依次经过主机限速、上游名额和OkHttp调度器
+     */
+    private static class AsyncRequest {
+        private final Request request;
+        private final String url;
+        private final String userAgent;
+        private final HttpResponseCache cache;
+        private final HttpResponseCache.Entry cached;
+        private final ResponseParser<?> parser;
+        private final RequestPriority priority;
+        private final Deadline deadline;
+        private final CompletableFuture<Fetched> future;
+        private final RetryBudget budget;
+        
+        // 当前尝试的主机限速等待、上游名额和HTTP调用，取消时使用
+        private volatile CompletableFuture<Void> hostReady;
+        private volatile CompletableFuture<Void> permit;
+        private volatile Call call;
+        
+        AsyncRequest(Request request, String url, String userAgent, HttpResponseCache cache, HttpResponseCache.Entry cached,
+                     ResponseParser<?> parser, RequestPriority priority, Deadline deadline, CompletableFuture<Fetched> future) {
+            this.request = request;
+            this.url = url;
+            this.userAgent = userAgent;
+            this.cache = cache;
+            this.cached = cached;
+            this.parser = parser;
+            this.priority = priority;
+            this.deadline = deadline;
+            this.future = future;
+            this.budget = retryBudget(request.url().host());
+        }
+        
+        /**
+         * 开始一次尝试
+         * 
+         * @param attempt 尝试次数，从1开始
+         */
+        void attempt(int attempt) {
+            CompletableFuture<Void> ready = acquireHost(request);
+            hostReady = ready;
+            // 在登记之前已被取消时放弃主机排队，退还预约的令牌
+            if (future.isCancelled()) {
+                ready.cancel(false);
+            }
+            ready.whenComplete((result, hostError) -> {
+                if (hostError != null) {
+                    if (!ready.isCancelled()) {
+                        future.completeExceptionally(hostError);
+                    }
+                    return;
+                }
+                // 主机排队期间已被取消
+                if (future.isDone()) {
+                    return;
+                }
+                CompletableFuture<Void> acquired = acquirePermit(priority);
+                permit = acquired;
+                if (future.isCancelled()) {
+                    acquired.cancel(false);
+                }
+                acquired.thenRun(() -> enqueue(attempt));
+            });
+        }
+        
+        /**
+         * 获得上游名额后将请求交给OkHttp调度器执行
+         * 
+         * @param attempt 尝试次数
+         */
+        private void enqueue(int attempt) {
+            // 排队期间已被取消
+            if (future.isDone()) {
+                releasePermit(priority);
+                return;
+            }
+            Call current = clientFor(request.url().host()).newCall(request);
+            call = current;
+            if (future.isCancelled()) {
+                current.cancel();
+            }
+            current.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    releasePermit(priority);
+                    if (call.isCanceled()) {
+                        future.complete(Fetched.EMPTY);
+                        return;
+                    }
+                    retryOrFail(attempt, e.toString(), -1);
+                }
+                
+                @Override
+                public void onResponse(Call call, Response response) {
+                    String failure = null;
+                    long retryAfter = -1;
+                    boolean stale = false;
+                    try (response) {
+                        // 异步请求在回调线程上只读取响应体，解析交给解析阶段
+                        Fetched fetched = parser != null
+                                ? completeBuffered(url, response, cache, cached, parser)
+                                : complete(url, response, cache, cached, null);
+                        if (fetched == Fetched.STALE) {
+                            stale = true;
+                        } else if (fetched != null) {
+                            future.complete(fetched);
+                        } else if (retryPolicy.isRetryableStatus(response.code())) {
+                            failure = "HTTP " + response.code();
+                            retryAfter = retryAfter(request, response);
+                        } else {
+                            logger.warning("HTTP request failed with code: " + response.code() + ", url: " + url);
+                            future.complete(Fetched.EMPTY);
+                        }
+                    } catch (ResponseTooLargeException e) {
+                        logger.warning(e.getMessage() + ", url: " + url);
+                        future.complete(Fetched.EMPTY);
+                    } catch (IOException e) {
+                        failure = e.toString();
+                    } catch (Exception e) {
+                        logger.log(Level.WARNING, "Error reading response from: " + url, e);
+                        future.complete(Fetched.EMPTY);
+                    } finally {
+                        releasePermit(priority);
+                    }
+                    if (stale) {
+                        refetch();
+                    } else if (failure != null) {
+                        retryOrFail(attempt, failure, retryAfter);
+                    }
+                }
+            });
+        }
+        
+        /**
+         * 缓存的响应体已丢失、条目已被删除时，不带条件请求头重新请求一次，结果用于完成原来的Future
+         */
+        private void refetch() {
+            Supplier<CompletableFuture<Fetched>> prioritized = () -> priority.call(() -> fetchAsync(url, userAgent, parser));
+            CompletableFuture<Fetched> retry = deadline != null ? deadline.call(prioritized) : prioritized.get();
+            future.whenComplete((result, error) -> {
+                if (future.isCancelled()) {
+                    retry.cancel(false);
+                }
+            });
+            retry.whenComplete((result, error) -> {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(result);
+                }
+            });
+        }
+        
+        /**
+         * 按重试策略安排下一次尝试，不能重试时以空内容完成
+         * 
+         * @param attempt 已经失败的尝试次数
+         * @param failure 失败原因
+         * @param retryAfter 上游通过Retry-After要求等待的毫秒数，没有时为-1
+         */
+        private void retryOrFail(int attempt, String failure, long retryAfter) {
+            long delay = retryDelay(request, attempt, budget, deadline, failure, retryAfter);
+            if (delay < 0) {
+                future.complete(Fetched.EMPTY);
+                return;
+            }
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!future.isDone()) {
+                    attempt(attempt + 1);
+                }
+            });
+        }
+        
+        /**
+         * 放弃排队并中止进行中的HTTP调用
+         */
+        void cancel() {
+            CompletableFuture<Void> waiting = hostReady;
+            if (waiting != null) {
+                waiting.cancel(false);
+            }
+            CompletableFuture<Void> acquired = permit;
+            if (acquired != null) {
+                acquired.cancel(false);
+            }
+            Call current = call;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+    
+    /**
+     * 判断失败的请求能否重试，并计算退避时间
+     * 
+     * 非幂等请求、达到最多尝试次数、退避后已超过请求的截止时间或主机的重试预算耗尽时不再重试。
+     * 上游要求的等待时间长于退避时间时按上游的要求等待，超过截止时间（没有截止时间时超过退避时间的最大值）时不再重试
+     * 
+     * @param request 请求
+     * @param attempt 已经失败的尝试次数
+     * @param budget 主机的重试预算
+     * @param deadline 请求的截止时间，可以为null
+     * @param failure 失败原因，用于日志
+     * @param retryAfter 上游通过Retry-After要求等待的毫秒数，没有时为-1
+     * @return 退避毫秒数，不能重试时返回-1
+     */
+    private static long retryDelay(Request request, int attempt, RetryBudget budget, Deadline deadline, String failure,
+                                   long retryAfter) {
+        String url = request.url().toString();
+        String host = request.url().host();
+        RetryPolicy policy = retryPolicy;
+        if (!policy.isIdempotent(request.method()) || attempt >= policy.getMaxAttempts()) {
+            logger.warning("Request failed after " + attempt + " attempts: " + url + ", error: " + failure);
+            return -1;
+        }
+        long delay = Math.max(policy.backoffMillis(attempt), retryAfter);
+        if (deadline == null && retryAfter > policy.getMaxDelayMillis()) {
+            logger.warning("Request failed, Retry-After " + retryAfter + "ms is too long: " + url + ", error: " + failure);
+            countRetry(host, "retry-after");
+            return -1;
+        }
+        if (deadline != null && deadline.remainingMillis() <= delay) {
+            logger.warning("Request failed, no time left for retry: " + url + ", error: " + failure);
+            countRetry(host, "deadline");
+            return -1;
+        }
+        if (!budget.tryRetry()) {
+            logger.warning("Request failed, retry budget exhausted for host " + host + ": " + url + ", error: " + failure);
+            countRetry(host, "budget-exhausted");
+            return -1;
+        }
+        logger.info("Retrying request in " + delay + "ms (attempt " + (attempt + 1) + "): " + url + ", error: " + failure);
+        countRetry(host, "retried");
+        return delay;
+    }
+    
+    private static void countRetry(String host, String outcome) {
+        Metrics.counter("movie.upstream.retries", "host", host, "outcome", outcome).increment();
+    }
+    
+    /**
+     * 获取主机的重试预算
+     * 
+     * @param host 主机名
+     * @return 重试预算
+     */
+    private static RetryBudget retryBudget(String host) {
+        return retryBudgets.computeIfAbsent(host, h -> new RetryBudget(retryBudgetRatio, retryBudgetReserve));
+    }
+    
+    /**
+     * 阻塞等待重试退避时间
+     * 
+     * @param delayMillis 退避毫秒数
+     * @param scope 当前取消范围，范围被取消时放弃等待
+     * @throws CancellationException 等待期间被取消或中断
+     */
+    private static void awaitDelay(long delayMillis, CancellationScope scope) {
+        if (delayMillis <= 0) {
+            return;
+        }
+        CompletableFuture<Void> timer = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> timer.complete(null));
+        if (scope != null) {
+            scope.track(timer);
+        }
+        try {
+            timer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted during retry backoff");
+        } catch (ExecutionException e) {
+            // 定时器不会异常完成
+        }
+    }
+    
+    /**
+     * 读取可重试响应的Retry-After
+     * 
+     * 429响应带有Retry-After时，同时暂停向该主机发出请求，其他请求不会在暂停期间继续触发429
+     * 
+     * @param request 请求
+     * @param response 可重试的响应
+     * @return 上游要求等待的毫秒数，没有时返回-1
+     */
+    private static long retryAfter(Request request, Response response) {
+        long millis = retryPolicy.parseRetryAfterMillis(response.header("Retry-After"));
+        if (millis > 0 && response.code() == 429) {
+            HostRateLimiter limiter = hostLimiters.get(request.url().host());
+            if (limiter != null) {
+                limiter.pause(millis);
+            }
+        }
+        return millis;
+    }
+    
+    /**
+     * 按主机限速排队
+     * 
+     * @param request 请求
+     * @return 可以发出请求时完成的Future，主机没有配置限速或请求由录制响应应答时已完成
+     */
+    private static CompletableFuture<Void> acquireHost(Request request) {
+        HostRateLimiter limiter = hostLimiters.get(request.url().host());
+        if (limiter == null || fixtures.matches(request.url().toString())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return limiter.acquire();
+    }
+    
+    /**
+     * 阻塞等待主机限速
+     * 
+     * @param request 请求
+     * @param scope 当前取消范围，范围被取消时放弃等待
+     * @throws RejectedExecutionException 排队时间会超过期限
+     * @throws CancellationException 等待期间被取消或中断
+     */
+    private static void awaitHost(Request request, CancellationScope scope) {
+        CompletableFuture<Void> ready = acquireHost(request);
+        if (ready.isDone() && !ready.isCompletedExceptionally()) {
+            return;
+        }
+        if (scope != null) {
+            scope.track(ready);
+        }
+        try {
+            ready.get();
+        } catch (ExecutionException e) {
+            throw new RejectedExecutionException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            // 放弃等待，退还预约的令牌
+            ready.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for host: " + request.url().host());
+        }
+    }
+    
+    /**
+     * 申请上游名额
+     * 
+     * @param priority 优先级
+     * @return 获得名额时完成的Future，没有设置调度器时已完成
+     */
+    private static CompletableFuture<Void> acquirePermit(RequestPriority priority) {
+        PriorityScheduler current = scheduler;
+        return current != null ? current.acquire(priority) : CompletableFuture.completedFuture(null);
+    }
+    
+    /**
+     * 阻塞等待上游名额
+     * 
+     * @param priority 优先级
+     * @param scope 当前取消范围，范围被取消时放弃等待
+     * @return 是否获得名额，放弃等待时返回false
+     */
+    private static boolean awaitPermit(RequestPriority priority, CancellationScope scope) {
+        CompletableFuture<Void> permit = acquirePermit(priority);
+        if (scope != null) {
+            scope.track(permit);
+        }
+        try {
+            permit.get();
+            return true;
+        } catch (CancellationException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!permit.cancel(false)) {
+                releasePermit(priority);
+            }
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    /**
+     * 归还上游名额
+     * 
+     * @param priority 申请名额时的优先级
+     */
+    private static void releasePermit(RequestPriority priority) {
+        PriorityScheduler current = scheduler;
+        if (current != null) {
+            current.release(priority);
+        }
+    }
+    
+    /**
+     * 构建GET请求
+     * 
+     * @param url 请求URL
+     * @param userAgent User-Agent头信息，为空时使用默认值
+     * @param cached 缓存的响应，有校验信息时发送条件请求，可以为null
+     * @return 请求
+     */
+    private static Request buildGetRequest(String url, String userAgent, HttpResponseCache.Entry cached) {
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(url)
+                .addHeader("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
+                .addHeader("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
+                .addHeader("Connection", "keep-alive");
+        
+        // 添加User-Agent
+        if (userAgent != null && !userAgent.isEmpty()) {
+            requestBuilder.addHeader("User-Agent", userAgent);
+        } else {
+            requestBuilder.addHeader("User-Agent", DEFAULT_USER_AGENT);
+        }
+        
+        // 添加条件请求头
+        if (cached != null && cached.getEtag() != null) {
+            requestBuilder.addHeader("If-None-Match", cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            requestBuilder.addHeader("If-Modified-Since", cached.getLastModified());
+        }
+        
+        return requestBuilder.build();
+    }
+    
+    /**
+     * 读取成功响应的内容
+     * 
+     * @param response 响应
+     * @return 响应内容字符串
+     * @throws IOException 读取失败
+     * @throws ResponseTooLargeException 响应体超过大小上限
+     */
+    private static String readBody(Response response) throws IOException {
+        // 获取响应体
+        ResponseBody responseBody = response.body();
+        if (responseBody != null) {
+            try (Reader reader = openBody(responseBody, null)) {
+                StringBuilder builder = new StringBuilder((int) Math.min(Math.max(responseBody.contentLength(), 16), 1 << 20));
+                char[] buffer = new char[8192];
+                int count;
+                while ((count = reader.read(buffer)) >= 0) {
+                    builder.append(buffer, 0, count);
+                }
+                return builder.toString();
+            }
         }
         return "";
     }
+    
+    /**
+     * 以受大小上限限制的Reader打开响应体
+     * 
+     * @param responseBody 响应体
+     * @param stream 用于记录网络读取失败的输入流，为null时新建
+     * @return 按响应的字符集解码的Reader
+     * @throws ResponseTooLargeException 响应声明的长度超过大小上限
+     */
+    private static Reader openBody(ResponseBody responseBody, BoundedInputStream stream) throws IOException {
+        long limit = maxResponseSize;
+        if (responseBody.contentLength() > limit) {
+            throw new ResponseTooLargeException(limit);
+        }
+        MediaType contentType = responseBody.contentType();
+        Charset charset = contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+        InputStream in = stream != null ? stream : new BoundedInputStream(responseBody.byteStream(), limit);
+        return new InputStreamReader(in, charset);
+    }
+    
+    /**
+     * 处理成功或未修改的响应，并更新响应缓存
+     * 
+     * @param url 请求URL
+     * @param response 响应
+     * @param cache 响应缓存，可以为null
+     * @param cached 发送请求时缓存的响应，可以为null
+     * @param parser 边读边解析响应体的解析函数，可以为null
+     * @return 响应，其他状态码返回null
+     * @throws IOException 读取失败
+     */
+    private static Fetched complete(String url, Response response, HttpResponseCache cache, HttpResponseCache.Entry cached,
+                                    ResponseParser<?> parser) throws IOException {
+        String host = response.request().url().host();
+        if (parser != null) {
+            return completeStreamed(url, host, response, cache, cached, parser);
+        }
+        if (response.code() == 304 && cached != null) {
+            String body = cache.readBody(cached);
+            if (body != null) {
+                countCache(host, "not-modified");
+                return new Fetched(body, cached);
+            }
+            return staleEntry(url, host, cache);
+        }
+        if (!response.isSuccessful()) {
+            return null;
+        }
+        
+        String body = readBody(response);
+        if (cache == null) {
+            return new Fetched(body, null);
+        }
+        HttpResponseCache.Entry entry = cache.put(url, response.header("ETag"), response.header("Last-Modified"), body);
+        if (cached != null) {
+            countCache(host, entry != null && entry.getHash().equals(cached.getHash()) ? "unchanged" : "changed");
+        }
+        return new Fetched(body, entry);
+    }
+    
+    /**
+     * 边读边解析成功或未修改的响应，并更新响应缓存
+     * 
+     * 有响应缓存时响应体在解析的同时被写入缓存，解析函数没有读完的内容随后被读完，以便计算完整的摘要
+     * 
+     * @return 响应，其他状态码返回null
+     * @throws IOException 网络读取失败，可以重试
+     */
+    private static Fetched completeStreamed(String url, String host, Response response, HttpResponseCache cache,
+                                           HttpResponseCache.Entry cached, ResponseParser<?> parser) throws IOException {
+        if (response.code() == 304 && cached != null) {
+            return parseNotModified(url, host, cache, cached, parser);
+        }
+        ResponseBody responseBody = response.body();
+        if (!response.isSuccessful() || responseBody == null) {
+            return null;
+        }
+        
+        BoundedInputStream stream = new BoundedInputStream(responseBody.byteStream(), maxResponseSize);
+        try (Reader body = openBody(responseBody, stream)) {
+            return parseBody(url, host, body, cache, cached, response.header("ETag"), response.header("Last-Modified"), parser);
+        } catch (IOException | RuntimeException e) {
+            // 区分网络读取失败、超过大小上限和内容无法解析，只有网络读取失败可以重试
+            if (stream.getSourceFailure() != null) {
+                throw stream.getSourceFailure();
+            }
+            if (e instanceof ResponseTooLargeException || stream.isLimitExceeded()) {
+                throw new ResponseTooLargeException(maxResponseSize);
+            }
+            return Fetched.failed(e);
+        }
+    }
+    
+    /**
+     * 读取成功或未修改的响应，解析推迟到解析阶段进行
+     * 
+     * 获取阶段只把不超过大小上限的响应体读入内存并释放连接，解析和写入响应缓存由{@link Fetched#resolve()}在解析阶段完成
+     * 
+     * @return 响应，其他状态码返回null
+     * @throws IOException 网络读取失败或超过大小上限
+     */
+    private static Fetched completeBuffered(String url, Response response, HttpResponseCache cache,
+                                            HttpResponseCache.Entry cached, ResponseParser<?> parser) throws IOException {
+        String host = response.request().url().host();
+        if (response.code() == 304 && cached != null) {
+            if (!cache.hasBody(cached)) {
+                return staleEntry(url, host, cache);
+            }
+            return Fetched.deferred(() -> parseNotModified(url, host, cache, cached, parser));
+        }
+        ResponseBody responseBody = response.body();
+        if (!response.isSuccessful() || responseBody == null) {
+            return null;
+        }
+        
+        long limit = maxResponseSize;
+        if (responseBody.contentLength() > limit) {
+            throw new ResponseTooLargeException(limit);
+        }
+        MediaType contentType = responseBody.contentType();
+        Charset charset = contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+        byte[] bytes;
+        try (InputStream in = new BoundedInputStream(responseBody.byteStream(), limit)) {
+            bytes = in.readAllBytes();
+        }
+        String etag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        return Fetched.deferred(() -> {
+            try (Reader body = new InputStreamReader(new ByteArrayInputStream(bytes), charset)) {
+                return parseBody(url, host, body, cache, cached, etag, lastModified, parser);
+            } catch (IOException | RuntimeException e) {
+                return Fetched.failed(e);
+            }
+        });
+    }
+    
+    /**
+     * 使用缓存的响应体处理未修改的响应
+     * 
+     * @return 响应，缓存文件已被删除时返回{@link Fetched#STALE}
+     */
+    private static Fetched parseNotModified(String url, String host, HttpResponseCache cache,
+                                            HttpResponseCache.Entry cached, ResponseParser<?> parser) {
+        Reader reader = cache.openBody(cached);
+        if (reader == null) {
+            return staleEntry(url, host, cache);
+        }
+        countCache(host, "not-modified");
+        try (reader) {
+            return Fetched.parsed(parser.parse(reader), cached);
+        } catch (IOException | RuntimeException e) {
+            return Fetched.failed(e);
+        }
+    }
+    
+    /**
+     * 解析成功响应的响应体，有响应缓存且响应带有校验信息时同时写入缓存
+     * 
+     * @param body 响应体
+     * @param etag 响应的ETag头
+     * @param lastModified 响应的Last-Modified头
+     * @return 解析结果
+     * @throws IOException 读取失败，调用方负责区分失败原因
+     */
+    private static Fetched parseBody(String url, String host, Reader body, HttpResponseCache cache, HttpResponseCache.Entry cached,
+                                     String etag, String lastModified, ResponseParser<?> parser) throws IOException {
+        HttpResponseCache.Recorder recorder = null;
+        if (cache != null && !HttpResponseCache.hasValidator(etag, lastModified)) {
+            // 无法进行条件请求的响应不写入缓存，之前缓存的响应已经失效
+            if (cached != null) {
+                cache.remove(url);
+            }
+        } else if (cache != null) {
+            try {
+                recorder = cache.record(url);
+            } catch (IOException e) {
+                logger.warning("Error creating http cache file for " + url + ": " + e.getMessage());
+            }
+        }
+        Object value;
+        try {
+            Reader reader = recorder != null ? recorder.tee(body) : body;
+            value = parser.parse(reader);
+            if (recorder != null) {
+                reader.transferTo(Writer.nullWriter());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (recorder != null) {
+                recorder.abort();
+            }
+            throw e;
+        }
+        
+        if (recorder == null) {
+            return Fetched.parsed(value, null);
+        }
+        HttpResponseCache.Entry entry = recorder.commit(etag, lastModified);
+        if (cached != null) {
+            countCache(host, entry != null && entry.getHash().equals(cached.getHash()) ? "unchanged" : "changed");
+        }
+        return Fetched.parsed(value, entry);
+    }
+    
+    /**
+     * 处理响应体文件已丢失的缓存条目
+     * 
+     * 删除条目，否则之后的请求会一直带着同样的条件请求头得到304，却没有可用的响应体
+     * 
+     * @param url 请求URL
+     * @param host 主机名
+     * @param cache 响应缓存
+     * @return {@link Fetched#STALE}，调用方应不带条件请求头重新请求一次
+     */
+    private static Fetched staleEntry(String url, String host, HttpResponseCache cache) {
+        logger.warning("Cached body missing for not modified response, refetching: " + url);
+        cache.remove(url);
+        countCache(host, "stale");
+        return Fetched.STALE;
+    }
+    
+    private static void countCache(String host, String result) {
+        Metrics.counter("movie.upstream.http-cache", "host", host, "result", result).increment();
+    }
+    
+    /**
+     * 请求得到的响应内容及其缓存条目
+     */
+    private static class Fetched {
+        static final Fetched EMPTY = new Fetched("", null);
+        
+        // 上游返回304但缓存的响应体已丢失，需要重新请求；推迟的解析中出现时按空内容处理
+        static final Fetched STALE = new Fetched("", null);
+        
+        final String body;
+        
+        // 响应体对应的缓存条目，没有缓存时为null
+        final HttpResponseCache.Entry entry;
+        
+        // 边读边解析的结果和解析失败的原因
+        Object value;
+        Exception error;
+        
+        // 推迟到解析阶段进行的解析
+        Supplier<Fetched> pending;
+        
+        Fetched(String body, HttpResponseCache.Entry entry) {
+            this.body = body;
+            this.entry = entry;
+        }
+        
+        static Fetched parsed(Object value, HttpResponseCache.Entry entry) {
+            Fetched fetched = new Fetched(null, entry);
+            fetched.value = value;
+            return fetched;
+        }
+        
+        static Fetched failed(Exception error) {
+            Fetched fetched = new Fetched(null, null);
+            fetched.error = error;
+            return fetched;
+        }
+        
+        static Fetched deferred(Supplier<Fetched> pending) {
+            Fetched fetched = new Fetched(null, null);
+            fetched.pending = pending;
+            return fetched;
+        }
+        
+        /**
+         * 完成推迟的解析
+         * 
+         * @return 解析后的响应，没有推迟的解析时返回自身
+         */
+        Fetched resolve() {
+            return pending != null ? pending.get() : this;
+        }
+        
+        /**
+         * 获取边读边解析的结果，请求失败时以空内容调用解析函数
+         * 
+         * @param parser 解析函数
+         * @return 解析结果
+         */
+        @SuppressWarnings("unchecked")
+        <T> T value(ResponseParser<T> parser) {
+            try {
+                if (error != null) {
+                    throw error;
+                }
+                return this == EMPTY || this == STALE ? parser.parse(new StringReader("")) : (T) value;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+    
+    /**
+     * 响应体超过大小上限
+     */
+    private static class ResponseTooLargeException extends IOException {
+        ResponseTooLargeException(long limit) {
+            super("Response body exceeds " + limit + " bytes");
+        }
+    }
+    
+    /**
+     * 限制读取字节数的响应体输入流
+     * 
+     * 记录网络读取失败和超过上限的情况，用于区分解析函数自己抛出的异常
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+        private boolean limitExceeded;
+        private IOException sourceFailure;
+        
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n;
+            try {
+                n = super.read(buffer, offset, length);
+            } catch (IOException e) {
+                sourceFailure = e;
+                throw e;
+            }
+            if (n > 0) {
+                count += n;
+                if (count > limit) {
+                    limitExceeded = true;
+                    throw new ResponseTooLargeException(limit);
+                }
+            }
+            return n;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            // 跳过的内容同样计入上限
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+        
+        boolean isLimitExceeded() {
+            return limitExceeded;
+        }
+        
+        IOException getSourceFailure() {
+            return sourceFailure;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,486 @@
+package org.example.get_movie_data.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * 上游HTTP响应缓存
+ *
+ * 把上游GET请求的响应体和ETag/Last-Modified保存在磁盘上，条目数量有上限，超出时淘汰最久未使用的条目。
+ * 再次请求同一地址时，HttpClientUtil带上If-None-Match/If-Modified-Since进行条件请求，上游返回304时直接使用保存的响应体。
+ * 只保存带有ETag或Last-Modified的响应，没有校验信息的响应无法进行条件请求，保存只会浪费磁盘写入。
+ * 每个条目对应两个文件：.meta保存地址、ETag、Last-Modified和摘要，.body保存UTF-8编码的响应体。
+ * 所有条目的元数据在创建缓存时读入内存，查找条目不访问磁盘，可以在请求线程上调用。
+ */
+public class HttpResponseCache {
+    private static final Logger logger = Logger.getLogger(HttpResponseCache.class.getName());
+
+    private final Path directory;
+    private final int maxEntries;
+
+    // 地址 -> 条目，按访问顺序排列，用于淘汰最久未使用的条目
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 创建缓存，磁盘上超出上限的旧文件被删除，其余条目的元数据读入内存
+     *
+     * @param directory 缓存目录
+     * @param maxEntries 最多缓存的条目数
+     */
+    public HttpResponseCache(Path directory, int maxEntries) {
+        this.directory = directory;
+        this.maxEntries = Math.max(1, maxEntries);
+        loadIndex(trimDirectory());
+    }
+
+    /**
+     * 获取缓存的条目，只查找内存，不访问磁盘
+     *
+     * @param url 请求地址
+     * @return 条目，没有缓存时返回null
+     */
+    public synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+
+    /**
+     * 删除缓存的条目
+     *
+     * @param url 请求地址
+     */
+    public void remove(String url) {
+        synchronized (this) {
+            if (entries.remove(url) == null) {
+                return;
+            }
+        }
+        deleteFiles(url);
+    }
+
+    /**
+     * 保存成功的响应
+     *
+     * 响应体摘要与已缓存的条目相同时只更新校验信息，返回原条目。
+     * 响应没有ETag和Last-Modified时不保存，并删除之前缓存的条目
+     *
+     * @param url 请求地址
+     * @param etag ETag响应头，可以为null
+     * @param lastModified Last-Modified响应头，可以为null
+     * @param body 响应体
+     * @return 缓存的条目，响应体为空、没有校验信息或写入失败时返回null
+     */
+    public Entry put(String url, String etag, String lastModified, String body) {
+        if (!hasValidator(etag, lastModified)) {
+            remove(url);
+            return null;
+        }
+        if (body == null || body.isEmpty()) {
+            return null;
+        }
+        try {
+            Recorder recorder = record(url);
+            try (Writer writer = recorder.writer) {
+                writer.write(body);
+            } catch (IOException e) {
+                recorder.abort();
+                throw e;
+            }
+            return recorder.commit(etag, lastModified);
+        } catch (IOException e) {
+            logger.warning("Error writing http cache file for " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 开始记录一个边读边解析的响应
+     *
+     * 响应体经过tee返回的Reader时被写入临时文件并计算摘要，读完后调用commit保存
+     *
+     * @param url 请求地址
+     * @return 记录器
+     * @throws IOException 无法创建临时文件
+     */
+    public Recorder record(String url) throws IOException {
+        return new Recorder(url);
+    }
+
+    /**
+     * 响应是否带有可用于条件请求的校验信息
+     *
+     * @param etag ETag响应头，可以为null
+     * @param lastModified Last-Modified响应头，可以为null
+     * @return true表示可以缓存
+     */
+    public static boolean hasValidator(String etag, String lastModified) {
+        return (etag != null && !etag.isEmpty()) || (lastModified != null && !lastModified.isEmpty());
+    }
+
+    /**
+     * 保存记录完成的响应体
+     *
+     * @param url 请求地址
+     * @param etag ETag响应头
+     * @param lastModified Last-Modified响应头
+     * @param hash 响应体摘要
+     * @param temp 保存响应体的临时文件
+     * @return 缓存的条目，摘要与已缓存的条目相同时返回原条目
+     */
+    private Entry commit(String url, String etag, String lastModified, String hash, Path temp) throws IOException {
+        Entry existing = get(url);
+        if (existing != null && existing.hash.equals(hash)) {
+            Files.deleteIfExists(temp);
+            if (equals(existing.etag, etag) && equals(existing.lastModified, lastModified)) {
+                return existing;
+            }
+            Entry updated = new Entry(url, etag, lastModified, hash);
+            writeMeta(updated);
+            replace(url, updated);
+            return updated;
+        }
+
+        Entry entry = new Entry(url, etag, lastModified, hash);
+        Files.move(temp, bodyFile(url), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writeMeta(entry);
+        replace(url, entry);
+        return entry;
+    }
+
+    /**
+     * 读取条目的响应体
+     *
+     * @param entry 条目
+     * @return 响应体，文件已被删除或读取失败时返回null
+     */
+    public String readBody(Entry entry) {
+        try {
+            return Files.readString(bodyFile(entry.url), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 打开条目的响应体
+     *
+     * @param entry 条目
+     * @return 响应体的Reader，由调用方关闭，文件已被删除时返回null
+     */
+    public Reader openBody(Entry entry) {
+        try {
+            return Files.newBufferedReader(bodyFile(entry.url), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 条目的响应体文件是否存在
+     *
+     * @param entry 条目
+     * @return true表示存在
+     */
+    public boolean hasBody(Entry entry) {
+        return Files.exists(bodyFile(entry.url));
+    }
+
+    /**
+     * 获取缓存的条目数
+     *
+     * @return 条目数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void replace(String url, Entry entry) {
+        entries.put(url, entry);
+        evict();
+    }
+
+    /**
+     * 淘汰最久未使用的条目，直到不超过上限
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            String url = iterator.next().getKey();
+            iterator.remove();
+            deleteFiles(url);
+        }
+    }
+
+    private void deleteFiles(String url) {
+        try {
+            Files.deleteIfExists(metaFile(url));
+            Files.deleteIfExists(bodyFile(url));
+        } catch (IOException e) {
+            logger.warning("Error deleting http cache file for " + url + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 把磁盘上的条目读入内存，按文件修改时间从旧到新加入，最近写入的条目最后被淘汰
+     *
+     * @param metaFiles 元数据文件，按修改时间从旧到新排列
+     */
+    private void loadIndex(List<Path> metaFiles) {
+        for (Path file : metaFiles) {
+            Entry entry = load(file);
+            if (entry != null) {
+                entries.put(entry.url, entry);
+            }
+        }
+        if (!entries.isEmpty()) {
+            logger.info("Loaded " + entries.size() + " http cache entries from " + directory);
+        }
+    }
+
+    /**
+     * 从磁盘读取条目的元数据
+     *
+     * 元数据文件中地址、ETag、Last-Modified、摘要各占一行，格式不正确、没有校验信息或响应体文件缺失的条目被忽略
+     */
+    private Entry load(Path file) {
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 4 || lines.get(3).isEmpty() || !hasValidator(lines.get(1), lines.get(2))) {
+                return null;
+            }
+            String url = lines.get(0);
+            if (!file.equals(metaFile(url)) || !Files.exists(bodyFile(url))) {
+                return null;
+            }
+            String etag = lines.get(1);
+            String lastModified = lines.get(2);
+            return new Entry(url, etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified, lines.get(3));
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Error reading http cache file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        String content = entry.url + '\n'
+                + (entry.etag != null ? entry.etag : "") + '\n'
+                + (entry.lastModified != null ? entry.lastModified : "") + '\n'
+                + entry.hash + '\n';
+        Path temp = Files.createTempFile(directory, "meta", ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, metaFile(entry.url), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 删除磁盘上超出上限的最旧条目和残留的临时文件
+     *
+     * @return 保留的元数据文件，按修改时间从旧到新排列
+     */
+    private List<Path> trimDirectory() {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        List<Path> metaFiles = new ArrayList<>();
+        List<Path> staleFiles = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".meta")) {
+                    metaFiles.add(file);
+                } else if (name.endsWith(".tmp")) {
+                    staleFiles.add(file);
+                }
+            });
+        } catch (IOException e) {
+            logger.warning("Error listing http cache directory: " + e.getMessage());
+            return new ArrayList<>();
+        }
+        metaFiles.sort(Comparator.comparing(HttpResponseCache::lastModifiedTime));
+        int excess = Math.max(0, metaFiles.size() - maxEntries);
+        if (excess > 0) {
+            for (int i = 0; i < excess; i++) {
+                Path meta = metaFiles.get(i);
+                String name = meta.getFileName().toString();
+                staleFiles.add(meta);
+                staleFiles.add(meta.resolveSibling(name.substring(0, name.length() - ".meta".length()) + ".body"));
+            }
+        }
+        for (Path file : staleFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warning("Error deleting http cache file " + file + ": " + e.getMessage());
+            }
+        }
+        return new ArrayList<>(metaFiles.subList(excess, metaFiles.size()));
+    }
+
+    private static FileTime lastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private Path metaFile(String url) {
+        return directory.resolve(sha256(url) + ".meta");
+    }
+
+    private Path bodyFile(String url) {
+        return directory.resolve(sha256(url) + ".body");
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static String sha256(String value) {
+        return TextUtil.hex(TextUtil.sha256(value));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 响应体记录器
+     *
+     * 把读到的响应体以UTF-8写入临时文件并同时计算摘要，摘要与put保存的响应体一致
+     */
+    public class Recorder {
+        private final String url;
+        private final Path temp;
+        private final MessageDigest digest = newDigest();
+        private final Writer writer;
+
+        private Recorder(String url) throws IOException {
+            this.url = url;
+            Files.createDirectories(directory);
+            this.temp = Files.createTempFile(directory, "body", ".tmp");
+            OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest);
+            this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 包装响应体的Reader，读出的字符同时被记录
+         *
+         * @param source 响应体
+         * @return 记录读出内容的Reader
+         */
+        public Reader tee(Reader source) {
+            return new FilterReader(source) {
+                @Override
+                public int read() throws IOException {
+                    int c = super.read();
+                    if (c >= 0) {
+                        writer.write(c);
+                    }
+                    return c;
+                }
+
+                @Override
+                public int read(char[] buffer, int offset, int length) throws IOException {
+                    int count = super.read(buffer, offset, length);
+                    if (count > 0) {
+                        writer.write(buffer, offset, count);
+                    }
+                    return count;
+                }
+            };
+        }
+
+        /**
+         * 保存已读完的响应体
+         *
+         * @param etag ETag响应头，可以为null
+         * @param lastModified Last-Modified响应头，可以为null
+         * @return 缓存的条目，摘要与已缓存的条目相同时返回原条目，没有校验信息或保存失败时返回null
+         */
+        public Entry commit(String etag, String lastModified) {
+            if (!hasValidator(etag, lastModified)) {
+                abort();
+                remove(url);
+                return null;
+            }
+            try {
+                writer.close();
+                return HttpResponseCache.this.commit(url, etag, lastModified, TextUtil.hex(digest.digest()), temp);
+            } catch (IOException e) {
+                logger.warning("Error writing http cache file for " + url + ": " + e.getMessage());
+                abort();
+                return null;
+            }
+        }
+
+        /**
+         * 放弃记录，删除临时文件
+         */
+        public void abort() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // 临时文件随后被删除
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                logger.warning("Error deleting http cache file " + temp + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 缓存条目
+     *
+     * 只保存校验信息和摘要，响应体在磁盘上，使用时由调用方重新解析
+     */
+    public static class Entry {
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final String hash;
+
+        private Entry(String url, String etag, String lastModified, String hash) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+    }
+}
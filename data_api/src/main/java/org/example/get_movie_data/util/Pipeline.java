@@ -0,0 +1,50 @@
+package org.example.get_movie_data.util;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 数据源请求的处理流水线
+ *
+ * 异步数据源请求分为三个阶段：获取阶段在OkHttp的回调线程上读取响应体（I/O），
+ * 解析阶段在与CPU核数相当的线程池上解析响应体，整理阶段对解析结果去重字符串并写入缓存。
+ * 数据源不是Spring Bean，阶段由MovieServiceManager创建后通过静态方法设置，与HttpClientUtil的配置方式一致。
+ */
+public final class Pipeline {
+
+    private static volatile PipelineStage parseStage;
+    private static volatile PipelineStage normalizeStage;
+
+    private Pipeline() {
+    }
+
+    /**
+     * 设置解析阶段和整理阶段
+     *
+     * @param parse 解析阶段，为null时在获取阶段的线程上解析
+     * @param normalize 整理阶段，为null时在解析阶段的线程上整理
+     */
+    public static void configure(PipelineStage parse, PipelineStage normalize) {
+        parseStage = parse;
+        normalizeStage = normalize;
+    }
+
+    /**
+     * 获取解析阶段的执行器
+     *
+     * @return 解析阶段，未设置时返回在当前线程上执行的执行器
+     */
+    public static Executor parse() {
+        PipelineStage stage = parseStage;
+        return stage != null ? stage : Runnable::run;
+    }
+
+    /**
+     * 获取整理阶段的执行器
+     *
+     * @return 整理阶段，未设置时返回在当前线程上执行的执行器
+     */
+    public static Executor normalize() {
+        PipelineStage stage = normalizeStage;
+        return stage != null ? stage : Runnable::run;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.get_movie_data.util;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据处理流水线中的一个阶段
+ *
+ * 固定大小的线程池加有界队列。队列满时任务在提交线程上执行，提交线程（通常是上一阶段的线程）因此放慢，
+ * 形成逐级向上游传递的背压，而不会无限堆积任务。阶段关闭后提交的任务同样在提交线程上执行，不会被丢弃。
+ * 任务的排队时间、执行时间和队列深度分别记录在movie.pipeline.stage.wait、movie.pipeline.stage.latency
+ * 和movie.pipeline.queue.depth指标中，以stage标签区分阶段。
+ */
+public class PipelineStage implements Executor {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final Timer waitTimer;
+    private final Timer latencyTimer;
+
+    /**
+     * 创建流水线阶段
+     *
+     * @param name 阶段名称，用于线程名和指标标签
+     * @param threads 线程数
+     * @param queueCapacity 队列容量
+     */
+    public PipelineStage(String name, int threads, int queueCapacity) {
+        this.name = name;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "pipeline-" + name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, pool) -> task.run());
+        this.waitTimer = Metrics.timer("movie.pipeline.stage.wait", "stage", name);
+        this.latencyTimer = Metrics.timer("movie.pipeline.stage.latency", "stage", name);
+        Metrics.gauge("movie.pipeline.queue.depth", Tags.of("stage", name), executor, pool -> pool.getQueue().size());
+        Metrics.gauge("movie.pipeline.stage.active", Tags.of("stage", name), executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long enqueueTime = System.nanoTime();
+        executor.execute(() -> {
+            long startTime = System.nanoTime();
+            waitTimer.record(startTime - enqueueTime, TimeUnit.NANOSECONDS);
+            try {
+                command.run();
+            } finally {
+                latencyTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    /**
+     * 获取阶段名称
+     *
+     * @return 阶段名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取排队的任务数
+     *
+     * @return 队列深度
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 关闭阶段，已排队的任务继续执行
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
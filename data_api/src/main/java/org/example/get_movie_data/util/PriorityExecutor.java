@@ -0,0 +1,64 @@
+package org.example.get_movie_data.util;
+
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按优先级执行任务的固定大小线程池
+ *
+ * 线程全部忙碌时，排队的任务按提交线程的{@link RequestPriority}执行，同一优先级先到先执行。
+ * 各优先级的排队时间记录在movie.upstream.queue.wait指标中。
+ */
+public class PriorityExecutor extends ThreadPoolExecutor {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 创建线程池
+     *
+     * @param threads 线程数
+     * @param threadFactory 线程工厂
+     */
+    public PriorityExecutor(int threads, ThreadFactory threadFactory) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new PrioritizedTask(command, RequestPriority.current(), sequence.getAndIncrement()));
+    }
+
+    /**
+     * 带优先级的任务
+     */
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Runnable task;
+        private final RequestPriority priority;
+        private final long sequence;
+        private final long enqueueTime = System.nanoTime();
+
+        PrioritizedTask(Runnable task, RequestPriority priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            Metrics.timer("movie.upstream.queue.wait", "priority", priority.getTag(), "stage", "executor")
+                    .record(System.nanoTime() - enqueueTime, TimeUnit.NANOSECONDS);
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int result = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
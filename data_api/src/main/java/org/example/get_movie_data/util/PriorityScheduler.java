@@ -0,0 +1,199 @@
+package org.example.get_movie_data.util;
+
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * 按优先级分配上游并发名额
+ *
+ * 同时进行的上游请求数有上限，名额不足时请求按优先级排队，同一优先级先到先得。
+ * 为交互请求保留一部分名额，搜索和后台请求不能占满；后台请求另有单独的上限，
+ * 竞争激烈时低优先级请求让出名额。各优先级的排队时间记录在movie.upstream.queue.wait指标中。
+ */
+public class PriorityScheduler {
+
+    // 同时进行的上游请求数上限
+    private final int maxConcurrent;
+
+    // 为交互请求保留的名额
+    private final int interactiveReserve;
+
+    // 后台请求最多占用的名额
+    private final int backgroundLimit;
+
+    // 等待名额的请求，按优先级和到达顺序排列
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+    // 各优先级正在进行的请求数
+    private final int[] running = new int[RequestPriority.values().length];
+    private int totalRunning;
+    private long sequence;
+
+    // 请求获得名额时接收排队时间（纳秒）的监听器
+    private volatile LongConsumer delayListener;
+
+    /**
+     * 创建调度器
+     *
+     * @param maxConcurrent 同时进行的上游请求数上限
+     * @param interactiveReserve 为交互请求保留的名额
+     * @param backgroundLimit 后台请求最多占用的名额
+     */
+    public PriorityScheduler(int maxConcurrent, int interactiveReserve, int backgroundLimit) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.interactiveReserve = Math.max(0, Math.min(interactiveReserve, this.maxConcurrent - 1));
+        this.backgroundLimit = Math.max(1, Math.min(backgroundLimit, this.maxConcurrent - this.interactiveReserve));
+    }
+
+    /**
+     * 设置排队时间监听器
+     *
+     * @param listener 每个请求获得名额时以排队时间（纳秒）调用
+     */
+    public void setDelayListener(LongConsumer listener) {
+        this.delayListener = listener;
+    }
+
+    /**
+     * 申请一个名额
+     *
+     * 返回的Future在获得名额时完成，获得名额后必须调用{@link #release}归还。
+     * 在获得名额前取消Future即放弃排队。
+     *
+     * @param priority 优先级
+     * @return 获得名额时完成的Future
+     */
+    public CompletableFuture<Void> acquire(RequestPriority priority) {
+        Waiter waiter = new Waiter(priority);
+        synchronized (this) {
+            waiter.sequence = sequence++;
+            waiters.add(waiter);
+        }
+        dispatch();
+        return waiter.future;
+    }
+
+    /**
+     * 归还名额
+     *
+     * @param priority 申请名额时的优先级
+     */
+    public void release(RequestPriority priority) {
+        synchronized (this) {
+            running[priority.ordinal()]--;
+            totalRunning--;
+        }
+        dispatch();
+    }
+
+    /**
+     * 按优先级把空闲名额分配给等待的请求
+     */
+    private void dispatch() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            while (!waiters.isEmpty()) {
+                Waiter head = waiters.peek();
+                if (head.future.isDone()) {
+                    // 已放弃排队
+                    waiters.poll();
+                    continue;
+                }
+                // 队首不能执行时，排在后面的低优先级请求限制更严格，也不能执行
+                if (!canRun(head.priority)) {
+                    break;
+                }
+                waiters.poll();
+                running[head.priority.ordinal()]++;
+                totalRunning++;
+                granted.add(head);
+            }
+        }
+
+        // 在锁外完成Future，避免在持有锁时执行后续的请求逻辑
+        LongConsumer listener = delayListener;
+        for (Waiter waiter : granted) {
+            long delay = System.nanoTime() - waiter.enqueueTime;
+            Metrics.timer("movie.upstream.queue.wait", "priority", waiter.priority.getTag(), "stage", "http")
+                    .record(delay, TimeUnit.NANOSECONDS);
+            if (listener != null) {
+                listener.accept(delay);
+            }
+            if (!waiter.future.complete(null)) {
+                // 分配名额的同时被取消
+                release(waiter.priority);
+            }
+        }
+    }
+
+    private boolean canRun(RequestPriority priority) {
+        switch (priority) {
+            case INTERACTIVE:
+                return totalRunning < maxConcurrent;
+            case SEARCH:
+                return totalRunning < maxConcurrent - interactiveReserve;
+            default:
+                return totalRunning < maxConcurrent - interactiveReserve
+                        && running[priority.ordinal()] < backgroundLimit;
+        }
+    }
+
+    /**
+     * 获取正在排队的请求数
+     *
+     * @return 排队数
+     */
+    public synchronized int getQueueLength() {
+        return waiters.size();
+    }
+
+    /**
+     * 获取队首请求已经等待的时间
+     *
+     * 队首是优先级最高的等待者，不一定等待最久，但名额全部被长时间占用时可以反映排队停滞
+     *
+     * @return 等待时间（纳秒），没有请求排队时返回0
+     */
+    public synchronized long getHeadWaitNanos() {
+        while (!waiters.isEmpty() && waiters.peek().future.isDone()) {
+            waiters.poll();
+        }
+        Waiter head = waiters.peek();
+        return head != null ? System.nanoTime() - head.enqueueTime : 0;
+    }
+
+    /**
+     * 获取正在进行的请求数
+     *
+     * @return 进行中的请求数
+     */
+    public synchronized int getRunning() {
+        return totalRunning;
+    }
+
+    /**
+     * 等待名额的请求
+     */
+    private static class Waiter implements Comparable<Waiter> {
+        private final RequestPriority priority;
+        private final long enqueueTime = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private long sequence;
+
+        Waiter(RequestPriority priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int result = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
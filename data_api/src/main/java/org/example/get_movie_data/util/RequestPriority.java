@@ -0,0 +1,91 @@
+package org.example.get_movie_data.util;
+
+import java.util.function.Supplier;
+
+/**
+ * 上游请求优先级
+ *
+ * 播放路径上的请求（剧集、播放地址）最优先，其次是搜索，批量请求和预取最低。
+ * 当前线程的优先级由控制器方法上的{@link org.example.get_movie_data.annotation.UpstreamPriority}注解设置，
+ * 在上游线程池中执行的任务继承提交时的优先级，HttpClientUtil按该优先级排队等待上游连接。
+ */
+public enum RequestPriority {
+
+    /**
+     * 用户点击播放时的交互请求
+     */
+    INTERACTIVE("interactive"),
+
+    /**
+     * 搜索请求
+     */
+    SEARCH("search"),
+
+    /**
+     * 批量请求、后台刷新和预取
+     */
+    BACKGROUND("background");
+
+    private static final ThreadLocal<RequestPriority> CURRENT = new ThreadLocal<>();
+
+    private final String tag;
+
+    RequestPriority(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * 获取指标标签值
+     *
+     * @return 标签值
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * 获取当前线程的优先级
+     *
+     * @return 当前优先级，没有设置时为SEARCH
+     */
+    public static RequestPriority current() {
+        RequestPriority priority = CURRENT.get();
+        return priority != null ? priority : SEARCH;
+    }
+
+    /**
+     * 设置当前线程的优先级
+     *
+     * @param priority 优先级
+     */
+    public static void bind(RequestPriority priority) {
+        CURRENT.set(priority);
+    }
+
+    /**
+     * 清除当前线程的优先级
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 以该优先级执行任务，结束后恢复之前的优先级
+     *
+     * @param task 任务
+     * @return 任务结果
+     */
+    public <T> T call(Supplier<T> task) {
+        RequestPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
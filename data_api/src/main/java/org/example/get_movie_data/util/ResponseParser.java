@@ -0,0 +1,25 @@
+package org.example.get_movie_data.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 响应体解析函数
+ *
+ * 从Reader中边读边解析上游响应，不需要先把整个响应体读成字符串。
+ * Reader由HttpClientUtil打开和关闭，解析函数不需要读完全部内容。
+ *
+ * @param <T> 解析结果类型
+ */
+@FunctionalInterface
+public interface ResponseParser<T> {
+
+    /**
+     * 解析响应体
+     *
+     * @param reader 响应体，请求失败时为空内容
+     * @return 解析结果
+     * @throws IOException 读取或解析失败
+     */
+    T parse(Reader reader) throws IOException;
+}
@@ -0,0 +1,59 @@
+package org.example.get_movie_data.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重试预算
+ *
+ * 每个请求存入一定比例的重试额度，每次重试消耗一个额度，额度不足时不再重试。
+ * 这样重试量不会超过请求量的固定比例，上游故障时重试不会成倍放大流量；
+ * 额度上限保证长时间空闲后也只允许有限的突发重试。以整数千分之一额度计数，存取都是无锁操作。
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    // 每个请求存入的额度
+    private final long deposit;
+
+    // 额度上限
+    private final long maxBalance;
+
+    private final AtomicLong balance;
+
+    /**
+     * 创建重试预算
+     *
+     * @param ratio 重试量与请求量的比例上限，例如0.1
+     * @param reserve 最多可以累积的重试次数
+     */
+    public RetryBudget(double ratio, int reserve) {
+        this.deposit = (long) (ratio * SCALE);
+        this.maxBalance = Math.max(1, reserve) * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * 记录一次请求（不包括重试）
+     */
+    public void onRequest() {
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(maxBalance, current + amount));
+    }
+
+    /**
+     * 尝试消耗一次重试额度
+     *
+     * @return true表示可以重试
+     */
+    public boolean tryRetry() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+}
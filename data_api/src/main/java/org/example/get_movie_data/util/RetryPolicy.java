@@ -0,0 +1,111 @@
+package org.example.get_movie_data.util;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游请求重试策略
+ *
+ * 只重试幂等请求（GET、HEAD），可重试的失败包括网络错误、超时、5xx、408和429响应。
+ * 重试间隔按指数退避增长，并在[0, 退避时间]之间随机取值（全抖动），避免大量请求同时重试。
+ * 响应带有Retry-After时至少等待上游要求的时间，要求的时间超过请求的截止时间（没有截止时间时超过退避时间的最大值）时不重试。
+ */
+public class RetryPolicy {
+
+    // 最多尝试次数（包括第一次请求）
+    private final int maxAttempts;
+
+    // 第一次重试的退避时间上限（毫秒）
+    private final long baseDelayMillis;
+
+    // 退避时间的最大值（毫秒）
+    private final long maxDelayMillis;
+
+    /**
+     * 创建重试策略
+     *
+     * @param maxAttempts 最多尝试次数（包括第一次请求），1表示不重试
+     * @param baseDelayMillis 第一次重试的退避时间上限（毫秒）
+     * @param maxDelayMillis 退避时间的最大值（毫秒）
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * 请求方法是否幂等，只有幂等请求可以重试
+     *
+     * @param method 请求方法
+     * @return true表示幂等
+     */
+    public boolean isIdempotent(String method) {
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    /**
+     * 响应状态码是否可以重试
+     *
+     * @param code 状态码
+     * @return true表示可以重试
+     */
+    public boolean isRetryableStatus(int code) {
+        return code >= 500 || code == 408 || code == 429;
+    }
+
+    /**
+     * 解析Retry-After响应头
+     *
+     * 支持秒数和HTTP日期两种格式
+     *
+     * @param value Retry-After的值，可以为null
+     * @return 上游要求等待的毫秒数，没有或无法解析时返回-1
+     */
+    public long parseRetryAfterMillis(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        String trimmed = value.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(trimmed)));
+        } catch (NumberFormatException e) {
+            // 不是秒数，按HTTP日期解析
+        }
+        try {
+            Instant until = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return Math.max(0, until.toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 没有截止时间的请求最多按Retry-After等待的时间
+     *
+     * @return 毫秒数
+     */
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * 计算第几次尝试失败后的退避时间
+     *
+     * @param attempt 已经失败的尝试次数，从1开始
+     * @return 退避毫秒数
+     */
+    public long backoffMillis(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        long cap = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
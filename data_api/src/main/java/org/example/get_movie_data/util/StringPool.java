@@ -0,0 +1,82 @@
+package org.example.get_movie_data.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字符串去重池
+ *
+ * 将内容相同的字符串规范化为同一个实例，用于减少缓存中大量重复的基础URL和剧集标题占用的堆内存。
+ * 海报地址和剧集播放地址几乎不重复，不入池。
+ * 与String.intern()不同，池的大小和可入池字符串的长度都有上限，池满后不再接收新字符串，直到被清空。
+ */
+public class StringPool {
+
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+
+    // 池中最多保存的字符串数量
+    private final int maxSize;
+
+    // 可入池的字符串最大长度，超长字符串很少重复，直接返回原值
+    private final int maxLength;
+
+    /**
+     * 创建字符串去重池
+     *
+     * @param maxSize 池中最多保存的字符串数量
+     * @param maxLength 可入池的字符串最大长度
+     */
+    public StringPool(int maxSize, int maxLength) {
+        this.maxSize = maxSize;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 返回与给定字符串内容相同的规范实例
+     *
+     * @param value 字符串
+     * @return 池中的规范实例，如果不能入池则返回原值
+     */
+    public String intern(String value) {
+        if (value == null || value.isEmpty() || value.length() > maxLength) {
+            return value;
+        }
+
+        String existing = pool.get(value);
+        if (existing != null) {
+            return existing;
+        }
+
+        // 池已满，不再接收新字符串
+        if (pool.size() >= maxSize) {
+            return value;
+        }
+
+        existing = pool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * 池是否已满
+     *
+     * @return true表示已满
+     */
+    public boolean isFull() {
+        return pool.size() >= maxSize;
+    }
+
+    /**
+     * 获取池中字符串数量
+     *
+     * @return 字符串数量
+     */
+    public int size() {
+        return pool.size();
+    }
+
+    /**
+     * 清空池，已经规范化的字符串不受影响
+     */
+    public void clear() {
+        pool.clear();
+    }
+}
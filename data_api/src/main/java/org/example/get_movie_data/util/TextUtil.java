@@ -0,0 +1,319 @@
+package org.example.get_movie_data.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 文本解码和缓存键处理工具类
+ *
+ * 所有方法都是单次扫描、不使用正则表达式。输入中没有需要处理的内容时直接返回原字符串，不分配新对象；
+ * 需要处理时才创建StringBuilder，并先复制已经扫描过的前缀。
+ */
+public class TextUtil {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // 每个线程复用的SHA-256摘要对象，避免每次调用都查找算法提供者
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    // 十进制数字实体最多读取的位数，足以表示最大的码点1114111
+    private static final int MAX_DECIMAL_DIGITS = 7;
+
+    // 十六进制数字实体最多读取的位数
+    private static final int MAX_HEX_DIGITS = 6;
+
+    // 实体的最大长度（不含&和;），最长的是"#x10FFFF"和"#1114111"
+    private static final int MAX_ENTITY_LENGTH = 8;
+
+    // 支持的命名实体及其码点
+    private static final String[] ENTITY_NAMES = {"amp", "lt", "gt", "quot", "apos", "nbsp"};
+    private static final int[] ENTITY_CODE_POINTS = {'&', '<', '>', '"', '\'', 0xA0};
+
+    /**
+     * 解码字符串中的\\uXXXX转义序列
+     *
+     * 每个转义序列解码为一个UTF-16字符，代理对（例如\\uD83C\\uDFAC）因此解码为对应的补充字符；
+     * 不完整的转义序列（后面不足4位十六进制数字）保持原样
+     *
+     * @param input 包含Unicode转义序列的字符串
+     * @return 解码后的字符串，没有转义序列时返回原字符串
+     */
+    public static String unescapeUnicode(String input) {
+        if (input == null) {
+            return null;
+        }
+        int index = input.indexOf("\\u");
+        if (index < 0) {
+            return input;
+        }
+
+        int length = input.length();
+        StringBuilder builder = null;
+        int copied = 0;
+        while (index >= 0) {
+            int value = index + 6 <= length ? parseHex(input, index + 2, index + 6) : -1;
+            if (value < 0) {
+                index = input.indexOf("\\u", index + 1);
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(length);
+            }
+            builder.append(input, copied, index).append((char) value);
+            copied = index + 6;
+            index = input.indexOf("\\u", copied);
+        }
+        if (builder == null) {
+            return input;
+        }
+        return builder.append(input, copied, length).toString();
+    }
+
+    /**
+     * 解码字符串中的HTML实体
+     *
+     * 支持十进制和十六进制数字实体（例如&amp;#20013;、&amp;#x4E2D;）以及常用的命名实体
+     * （amp、lt、gt、quot、apos、nbsp），不认识或不完整的实体保持原样；解码结果不会被再次解码，
+     * 例如&amp;amp;lt;解码为&amp;lt;
+     *
+     * @param input 包含HTML实体的字符串
+     * @return 解码后的字符串，没有实体时返回原字符串
+     */
+    public static String decodeHtmlEntities(String input) {
+        return decodeHtmlEntities(input, false);
+    }
+
+    /**
+     * 解码字符串中的HTML实体，表示HTML标记字符（&amp;、&lt;、&gt;、"、'）的实体保持原样
+     *
+     * 用于会被插入到HTML中的文本：上游转义过的标记解码后会变成真正的标签，这里只解码其他字符，
+     * 例如&amp;#20013;和&amp;nbsp;被解码，&amp;lt;和&amp;#60;保持原样
+     *
+     * @param input 包含HTML实体的字符串
+     * @return 解码后的字符串，没有需要解码的实体时返回原字符串
+     */
+    public static String decodeTextEntities(String input) {
+        return decodeHtmlEntities(input, true);
+    }
+
+    private static String decodeHtmlEntities(String input, boolean keepMarkup) {
+        if (input == null) {
+            return null;
+        }
+        int index = input.indexOf('&');
+        if (index < 0) {
+            return input;
+        }
+
+        int length = input.length();
+        StringBuilder builder = null;
+        int copied = 0;
+        while (index >= 0) {
+            int end = entityEnd(input, index + 1);
+            int codePoint = end > 0 ? decodeEntity(input, index + 1, end) : -1;
+            if (codePoint < 0 || (keepMarkup && isMarkupChar(codePoint))) {
+                index = input.indexOf('&', index + 1);
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(length);
+            }
+            builder.append(input, copied, index).appendCodePoint(codePoint);
+            copied = end + 1;
+            index = input.indexOf('&', copied);
+        }
+        if (builder == null) {
+            return input;
+        }
+        return builder.append(input, copied, length).toString();
+    }
+
+    /**
+     * 把缓存键转换为可以用作文件名的字符串
+     *
+     * Windows文件名不能包含以下字符: &lt; &gt; : " / \ | ? *，这些字符被替换为下划线
+     *
+     * @param key 缓存键
+     * @return 安全的文件名，没有需要替换的字符时返回原字符串
+     */
+    public static String toFileName(String key) {
+        int length = key.length();
+        int index = 0;
+        while (index < length && !isReservedFileNameChar(key.charAt(index))) {
+            index++;
+        }
+        if (index == length) {
+            return key;
+        }
+
+        char[] chars = key.toCharArray();
+        for (int i = index; i < length; i++) {
+            if (isReservedFileNameChar(chars[i])) {
+                chars[i] = '_';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 计算字符串UTF-8编码的SHA-256摘要
+     *
+     * @param value 字符串
+     * @return 摘要
+     */
+    public static byte[] sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 计算字节数组的SHA-256摘要
+     *
+     * @param data 字节数组
+     * @return 摘要
+     */
+    public static byte[] sha256(byte[] data) {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest.digest(data);
+    }
+
+    /**
+     * 把字节数组的前若干字节转换为小写十六进制字符串
+     *
+     * @param bytes 字节数组
+     * @param count 转换的字节数，超过数组长度时转换整个数组
+     * @return 十六进制字符串
+     */
+    public static String hex(byte[] bytes, int count) {
+        int n = Math.min(count, bytes.length);
+        char[] chars = new char[n * 2];
+        for (int i = 0; i < n; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 把字节数组转换为小写十六进制字符串
+     *
+     * @param bytes 字节数组
+     * @return 十六进制字符串
+     */
+    public static String hex(byte[] bytes) {
+        return hex(bytes, bytes.length);
+    }
+
+    /**
+     * 解析固定范围内的十六进制数字
+     *
+     * @return 数值，包含非十六进制字符时返回-1
+     */
+    private static int parseHex(String input, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(input.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * 查找实体结尾的分号，只在实体最大长度范围内查找，避免大量不成对的&导致反复扫描整个字符串
+     *
+     * @return 分号的位置，没有找到或实体为空时返回-1
+     */
+    private static int entityEnd(String input, int start) {
+        int limit = Math.min(input.length(), start + MAX_ENTITY_LENGTH + 1);
+        for (int i = start; i < limit; i++) {
+            char c = input.charAt(i);
+            if (c == ';') {
+                return i > start ? i : -1;
+            }
+            if (c == '&') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 解码&和;之间的实体
+     *
+     * @param input 字符串
+     * @param start 实体名称的起始位置（&之后）
+     * @param end 实体名称的结束位置（;的位置）
+     * @return 码点，不认识的实体返回-1
+     */
+    private static int decodeEntity(String input, int start, int end) {
+        if (input.charAt(start) == '#') {
+            return decodeNumericEntity(input, start + 1, end);
+        }
+        int length = end - start;
+        for (int i = 0; i < ENTITY_NAMES.length; i++) {
+            String name = ENTITY_NAMES[i];
+            if (name.length() == length && input.regionMatches(start, name, 0, length)) {
+                return ENTITY_CODE_POINTS[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 解码数字实体
+     *
+     * @return 码点，格式错误或不是有效码点时返回-1
+     */
+    private static int decodeNumericEntity(String input, int start, int end) {
+        int radix = 10;
+        int maxDigits = MAX_DECIMAL_DIGITS;
+        if (start < end && (input.charAt(start) == 'x' || input.charAt(start) == 'X')) {
+            radix = 16;
+            maxDigits = MAX_HEX_DIGITS;
+            start++;
+        }
+        if (start >= end || end - start > maxDigits) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(input.charAt(i), radix);
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * radix + digit;
+        }
+        return Character.isValidCodePoint(value) ? value : -1;
+    }
+
+    private static boolean isMarkupChar(int codePoint) {
+        return codePoint == '&' || codePoint == '<' || codePoint == '>' || codePoint == '"' || codePoint == '\'';
+    }
+
+    private static boolean isReservedFileNameChar(char c) {
+        switch (c) {
+            case '<':
+            case '>':
+            case ':':
+            case '"':
+            case '/':
+            case '\\':
+            case '|':
+            case '?':
+            case '*':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.get_movie_data.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ *
+ * 以GCRA（通用信元速率算法）实现：只保存一个"理论到达时间"，每次申请令牌只需要一次CAS，不需要定时补充令牌。
+ * 理论到达时间超过当前时间的部分就是已经透支的令牌，透支量不能超过桶容量。
+ * 速率在每次申请时传入，便于按当前活跃客户端数动态调整。
+ */
+public class TokenBucket {
+
+    // 理论到达时间（System.nanoTime时间轴）
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * 创建装满令牌的令牌桶
+     */
+    public TokenBucket() {
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 申请令牌
+     *
+     * @param cost 需要的令牌数
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param capacity 桶容量（允许的突发令牌数）
+     * @param now 当前时间（System.nanoTime）
+     * @return 0表示申请成功，否则为令牌足够前需要等待的纳秒数
+     */
+    public long tryAcquire(int cost, double ratePerSecond, int capacity, long now) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long tolerance = interval * capacity;
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = tat - now > 0 ? tat : now;
+            long next = base + interval * cost;
+            long excess = next - now - tolerance;
+            if (excess > 0) {
+                return excess;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 预约令牌
+     *
+     * 令牌不足时不拒绝，而是预约之后补充的令牌，返回需要等待的时间。
+     * 预约按调用顺序排在已有预约之后，等待时间超过上限时不预约。
+     *
+     * @param cost 需要的令牌数
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param capacity 桶容量（允许的突发令牌数）
+     * @param now 当前时间（System.nanoTime）
+     * @param maxWaitNanos 最长等待时间（纳秒）
+     * @return 需要等待的纳秒数，0表示可以立即执行，-1表示等待时间超过上限、没有预约
+     */
+    public long reserve(int cost, double ratePerSecond, int capacity, long now, long maxWaitNanos) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long tolerance = interval * capacity;
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = tat - now > 0 ? tat : now;
+            long next = base + interval * cost;
+            long wait = Math.max(0, next - now - tolerance);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * 退还预约的令牌
+     *
+     * 用于预约后放弃等待的请求，使之后的请求可以使用这些令牌。只应对还没有到期的预约调用。
+     *
+     * @param cost 预约的令牌数
+     * @param ratePerSecond 预约时使用的每秒补充的令牌数
+     */
+    public void refund(int cost, double ratePerSecond) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        theoreticalArrival.addAndGet(-interval * cost);
+    }
+
+    /**
+     * 在指定时间之前不再发放令牌
+     *
+     * 之后的预约从该时间开始排队，用于上游要求暂停请求（429的Retry-After）时
+     *
+     * @param until 恢复发放令牌的时间（System.nanoTime）
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param capacity 桶容量（允许的突发令牌数）
+     */
+    public void pauseUntil(long until, double ratePerSecond, int capacity) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long target = until + interval * (capacity - 1);
+        theoreticalArrival.accumulateAndGet(target, (current, paused) -> current - paused >= 0 ? current : paused);
+    }
+
+    /**
+     * 令牌桶在指定时间前是否一直处于装满状态
+     *
+     * @param since 时间点（System.nanoTime）
+     * @return true表示该时间点之后没有消耗过令牌
+     */
+    public boolean isIdleSince(long since) {
+        return theoreticalArrival.get() - since <= 0;
+    }
+}
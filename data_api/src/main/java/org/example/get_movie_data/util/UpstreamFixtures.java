@@ -0,0 +1,124 @@
+package org.example.get_movie_data.util;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 录制的上游响应
+ *
+ * 作为OkHttp拦截器安装在所有客户端上，地址中包含标记（例如预热使用的关键词）且匹配某个录制响应的请求
+ * 直接返回录制的内容，不访问网络；其他请求照常发出。没有设置标记时不拦截任何请求。
+ * 录制内容中的{{marker}}被替换为地址中的标记及其后紧跟的字母、数字和下划线，使每个请求得到不同的结果。
+ */
+public class UpstreamFixtures implements Interceptor {
+
+    // 录制的响应，按注册顺序匹配
+    private final List<Fixture> fixtures = new CopyOnWriteArrayList<>();
+
+    // 只拦截包含该标记的地址，为null时不拦截
+    private volatile String marker;
+
+    /**
+     * 注册录制的响应
+     *
+     * @param urlPrefix 匹配的地址前缀
+     * @param body 响应内容，可以包含{{marker}}占位符
+     * @param contentType 响应的Content-Type
+     */
+    public void register(String urlPrefix, String body, String contentType) {
+        fixtures.add(new Fixture(urlPrefix, body, MediaType.parse(contentType)));
+    }
+
+    /**
+     * 设置拦截的标记
+     *
+     * @param marker 标记，为null时停止拦截
+     */
+    public void setMarker(String marker) {
+        this.marker = marker;
+    }
+
+    /**
+     * 清除所有录制的响应并停止拦截
+     */
+    public void clear() {
+        marker = null;
+        fixtures.clear();
+    }
+
+    /**
+     * 判断请求是否由录制的响应应答
+     *
+     * @param url 请求地址
+     * @return true表示不访问网络
+     */
+    public boolean matches(String url) {
+        return find(url, marker) != null;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String url = request.url().toString();
+        String current = marker;
+        Fixture fixture = find(url, current);
+        if (fixture == null) {
+            return chain.proceed(request);
+        }
+        String body = fixture.body.replace("{{marker}}", token(url, current));
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(body, fixture.contentType))
+                .build();
+    }
+
+    private Fixture find(String url, String current) {
+        if (current == null || url == null || !url.contains(current)) {
+            return null;
+        }
+        for (Fixture fixture : fixtures) {
+            if (url.startsWith(fixture.urlPrefix)) {
+                return fixture;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 取出地址中的标记及其后紧跟的字母、数字和下划线
+     */
+    private String token(String url, String current) {
+        int start = url.indexOf(current);
+        int end = start + current.length();
+        while (end < url.length() && (Character.isLetterOrDigit(url.charAt(end)) || url.charAt(end) == '_')) {
+            end++;
+        }
+        return url.substring(start, end);
+    }
+
+    /**
+     * 一条录制的响应
+     */
+    private static class Fixture {
+        final String urlPrefix;
+        final String body;
+        final MediaType contentType;
+
+        Fixture(String urlPrefix, String body, MediaType contentType) {
+            this.urlPrefix = urlPrefix;
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 // 默认API基础地址
 let API_BASE = localStorage.getItem('apiBaseUrl') || "https://***";
 let currentMovies = [];
+// 当前页面的客户端标识，服务端据此取消同一页面之前仍在进行的搜索
+const CLIENT_ID = (window.crypto && crypto.randomUUID) ? crypto.randomUUID() : String(Date.now()) + Math.random().toString(16).slice(2);
 // 默认错误图片地址
 const DEFAULT_ERROR_IMAGE = 'https://***/erro.png';
 
@@ -133,9 +135,10 @@ async function searchMovies() {
         const res = await fetch(`${API_BASE}/api/movie/search/all`, {
             method: 'POST',
             headers: {
-                'Content-Type': 'application/json'
+                'Content-Type': 'application/json',
+                'X-Client-Id': CLIENT_ID
             },
-            body: JSON.stringify({ keyword: keyword })
+            body: JSON.stringify({ keyword: keyword, includeEpisodes: true })
         });
         
         if (!res.ok) {
@@ -200,28 +203,22 @@ function renderMovies(movies) {
 
 // 加载电影详情
 async function loadMovieDetail(movie) {
-    const { baseUrl, playUrl } = movie;
+    const { movieId } = movie;
     const movieDetail = document.getElementById("movieDetail");
     
     try {
-        // 使用POST请求获取剧集列表
-        const res = await fetch(`${API_BASE}/api/movie/episodes`, {
-            method: 'POST',
-            headers: {
-                'Content-Type': 'application/json'
-            },
-            body: JSON.stringify({
-                baseUrl: baseUrl,
-                playUrl: playUrl
-            })
-        });
-        
-        if (!res.ok) {
-            throw new Error(`HTTP error! status: ${res.status}`);
+        // 搜索结果已附带剧集列表时直接使用，否则按电影ID获取剧集列表（GET请求可被浏览器按ETag缓存）
+        let episodes = movie.episodeList;
+        if (!episodes) {
+            const res = await fetch(`${API_BASE}/api/movie/episodes?movieId=${encodeURIComponent(movieId)}`);
+            
+            if (!res.ok) {
+                throw new Error(`HTTP error! status: ${res.status}`);
+            }
+            
+            episodes = await res.json();
         }
         
-        const episodes = await res.json();
-        
         // 渲染详情
         const posterUrl = getSafeImageUrl(movie.poster);
         movieDetail.innerHTML = `
@@ -254,23 +251,14 @@ async function loadMovieDetail(movie) {
         const episodeList = document.querySelector(".episode-list");
         const video = document.getElementById("videoPlayer");
         
-        episodes.forEach(ep => {
+        episodes.forEach((ep, episodeIndex) => {
             const btn = document.createElement("button");
             btn.className = "episode-btn";
             btn.textContent = ep.title;
             btn.onclick = async () => {
                 try {
-                    // 使用POST请求获取M3U8播放地址
-                    const m3u8Res = await fetch(`${API_BASE}/api/movie/m3u8`, {
-                        method: 'POST',
-                        headers: {
-                            'Content-Type': 'application/json'
-                        },
-                        body: JSON.stringify({
-                            baseUrl: baseUrl,
-                            episodeUrl: ep.episodeUrl
-                        })
-                    });
+                    // 按电影ID和剧集序号获取M3U8播放地址
+                    const m3u8Res = await fetch(`${API_BASE}/api/movie/m3u8?movieId=${encodeURIComponent(movieId)}&episodeIndex=${episodeIndex}`);
                     
                     if (m3u8Res.ok) {
                         const m3u8Data = await m3u8Res.json();